@@ -135,6 +135,10 @@ public final class EnderChest extends JavaPlugin {
 				.addMetric(Metric.number("save_count", () -> metricsDataProvider.getSaveCount()))
 				.addMetric(Metric.number("load_count", () -> metricsDataProvider.getLoadCount()))
 				.addMetric(Metric.number("avg_save_time_ms", () -> metricsDataProvider.getAvgSaveTimeMs()))
+				.addMetric(Metric.number("written_dirty_saves", () -> metricsDataProvider.getWrittenDirtySaves()))
+				.addMetric(Metric.number("skipped_clean_saves", () -> metricsDataProvider.getSkippedCleanSaves()))
+				.addMetric(Metric.number("storage_queue_depth", () -> metricsDataProvider.getStorageQueueDepth()))
+				.addMetric(Metric.number("storage_avg_wait_ms", () -> metricsDataProvider.getStorageAvgWaitMs()))
 				.create(this);
 		this.fastStatsMetrics.ready();
 	}
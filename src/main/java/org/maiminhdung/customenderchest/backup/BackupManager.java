@@ -5,6 +5,10 @@ import static org.maiminhdung.customenderchest.EnderChest.ERROR_TRACKER;
 import lombok.Getter;
 import org.maiminhdung.customenderchest.EnderChest;
 import org.maiminhdung.customenderchest.Scheduler;
+import org.maiminhdung.customenderchest.storage.RecentChestCache;
+import org.maiminhdung.customenderchest.storage.StorageInterface;
+import org.maiminhdung.customenderchest.storage.WriteBehindStorage;
+import org.maiminhdung.customenderchest.storage.impl.SegmentStorage;
 
 import java.io.File;
 import java.io.IOException;
@@ -78,6 +82,11 @@ public class BackupManager {
                 String storageType = plugin.config().getString("storage.type", "yml").toLowerCase();
 
                 plugin.getLogger().info("[Backup] Starting backup process...");
+                // Make sure queued saves are on disk before copying the data
+                plugin.getStorageManager().getStorage().flushAll().exceptionally(ex -> {
+                    plugin.getLogger().warning("[Backup] Some queued saves failed to write: " + ex.getMessage());
+                    return null;
+                }).join();
                 plugin.getDebugLogger().log("[Backup] Timestamp: " + timestamp);
                 plugin.getDebugLogger().log("[Backup] Storage type: " + storageType);
                 long startTime = System.currentTimeMillis();
@@ -98,6 +107,14 @@ public class BackupManager {
                         plugin.getDebugLogger().log("[Backup] Using MySQL backup method");
                         backupMySQLData(backupFile);
                         break;
+                    case "segment":
+                        plugin.getDebugLogger().log("[Backup] Using segment log backup method");
+                        backupSegmentData(backupFile);
+                        break;
+                    case "binary":
+                        plugin.getDebugLogger().log("[Backup] Using binary file backup method");
+                        backupBinaryData(backupFile);
+                        break;
                     default:
                         plugin.getLogger().warning("[Backup] Unknown storage type: " + storageType);
                         return false;
@@ -167,6 +184,58 @@ public class BackupManager {
         }
     }
 
+    /**
+     * Backup binary player files. Saves replace files by rename, so each copied file is complete.
+     */
+    private void backupBinaryData(File backupFile) throws IOException {
+        File dataFolder = new File(plugin.getDataFolder(), "playerdata-bin");
+        File[] files = dataFolder.listFiles((dir, name) -> name.endsWith(".cec") || name.endsWith(".overflow"));
+        if (files == null || files.length == 0) {
+            plugin.getLogger().warning("[Backup] No binary player files found to backup");
+            return;
+        }
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(backupFile.toPath()))) {
+            int count = 0;
+            for (File file : files) {
+                try {
+                    zos.putNextEntry(new ZipEntry("playerdata-bin/" + file.getName()));
+                    Files.copy(file.toPath(), zos);
+                    zos.closeEntry();
+                    count++;
+                } catch (NoSuchFileException e) {
+                    // Deleted since the folder was listed
+                    zos.closeEntry();
+                }
+            }
+            plugin.getLogger().info("[Backup] Backed up " + count + " binary player files");
+        }
+    }
+
+    /**
+     * Backup the segment log. Copied through the open storage so the snapshot ends on a complete record.
+     */
+    private void backupSegmentData(File backupFile) throws IOException {
+        StorageInterface storage = plugin.getStorageManager().getStorage();
+        if (storage instanceof RecentChestCache recentCache) {
+            storage = recentCache.getDelegate();
+        }
+        if (storage instanceof WriteBehindStorage writeBehind) {
+            storage = writeBehind.getDelegate();
+        }
+        if (!(storage instanceof SegmentStorage segment)) {
+            // Fell back to YML at startup, back up what is actually in use
+            plugin.getLogger().warning("[Backup] Segment storage is not active, backing up YML data instead");
+            backupYmlData(backupFile);
+            return;
+        }
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(backupFile.toPath()))) {
+            segment.backupTo(zos, "segments/chests.seg");
+        }
+        plugin.getLogger().info("[Backup] Segment log backed up successfully");
+    }
+
     /**
      * Backup H2 database data using SQL BACKUP command
      * This avoids file locking issues that occur when copying .mv.db files directly
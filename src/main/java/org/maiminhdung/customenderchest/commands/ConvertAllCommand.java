@@ -8,11 +8,13 @@ import org.jetbrains.annotations.NotNull;
 import org.maiminhdung.customenderchest.EnderChest;
 import org.maiminhdung.customenderchest.Scheduler;
 import org.maiminhdung.customenderchest.data.ItemSerializer;
+import org.maiminhdung.customenderchest.data.PayloadCodec;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -86,7 +88,7 @@ public class ConvertAllCommand implements CommandExecutor {
 
         try (Connection conn = plugin.getStorageManager().getConnection()) {
             // Step 1: Load all player data from database
-            String selectSql = "SELECT player_uuid, player_name, chest_data FROM " + tableName;
+            String selectSql = "SELECT player_uuid, player_name, chest_bytes, chest_data FROM " + tableName;
             PreparedStatement selectPs = conn.prepareStatement(selectSql);
             ResultSet rs = selectPs.executeQuery();
 
@@ -96,14 +98,32 @@ public class ConvertAllCommand implements CommandExecutor {
             while (rs.next()) {
                 String uuidStr = rs.getString("player_uuid");
                 String playerName = rs.getString("player_name");
-                String oldData = rs.getString("chest_data");
+                // Rows not yet moved to the binary column still hold Base64 text
+                byte[] oldData = rs.getBytes("chest_bytes");
+                boolean textRow = oldData == null;
+                if (textRow) {
+                    try {
+                        oldData = ItemSerializer.decodeBase64(rs.getString("chest_data"));
+                    } catch (IllegalArgumentException e) {
+                        plugin.getLogger().warning("Skipped invalid Base64 data for player: " + playerName);
+                        continue;
+                    }
+                } else {
+                    // Compare against the uncompressed payload
+                    try {
+                        oldData = PayloadCodec.decode(oldData);
+                    } catch (java.io.IOException e) {
+                        plugin.getLogger().warning("Skipped corrupt compressed data for player: " + playerName);
+                        continue;
+                    }
+                }
 
                 // Skip empty data
-                if (oldData == null || oldData.isEmpty()) {
+                if (oldData.length == 0) {
                     continue;
                 }
 
-                playerDataList.add(new PlayerData(UUID.fromString(uuidStr), playerName, oldData));
+                playerDataList.add(new PlayerData(UUID.fromString(uuidStr), playerName, oldData, textRow));
             }
 
             rs.close();
@@ -122,7 +142,7 @@ public class ConvertAllCommand implements CommandExecutor {
             for (PlayerData playerData : playerDataList) {
                 try {
                     // Deserialize old format (handles both old and new formats automatically)
-                    ItemStack[] items = ItemSerializer.fromBase64(playerData.oldData);
+                    ItemStack[] items = ItemSerializer.fromBytes(playerData.oldData);
 
                     if (items == null || items.length == 0) {
                         skippedCount.incrementAndGet();
@@ -131,18 +151,19 @@ public class ConvertAllCommand implements CommandExecutor {
                     }
 
                     // Re-serialize using Paper's new format
-                    String newData = ItemSerializer.toBase64(items);
+                    byte[] newData = ItemSerializer.toBytes(items);
 
                     // Check if data actually changed
-                    if (newData.equals(playerData.oldData)) {
+                    if (!playerData.textRow && Arrays.equals(newData, playerData.oldData)) {
                         // Data is already in new format, skip update
                         skippedCount.incrementAndGet();
                         plugin.getLogger().info("Data already in new format for: " + playerData.playerName);
                     } else {
                         // Update database with converted data
-                        String updateSql = "UPDATE " + tableName + " SET chest_data = ? WHERE player_uuid = ?";
+                        String updateSql = "UPDATE " + tableName + " SET chest_bytes = ?, chest_data = NULL WHERE player_uuid = ?";
                         try (PreparedStatement updatePs = conn.prepareStatement(updateSql)) {
-                            updatePs.setString(1, newData);
+                            // Write with a payload header so the next load does not rewrite it again
+                            updatePs.setBytes(1, PayloadCodec.encode(newData, PayloadCodec.NONE, 0));
                             updatePs.setString(2, playerData.uuid.toString());
                             updatePs.executeUpdate();
                         }
@@ -189,6 +210,8 @@ public class ConvertAllCommand implements CommandExecutor {
                     notifyOpsAboutConversionFailures(failCount.get(), playerDataList.size());
                 }
 
+                // Rows were rewritten directly in the database
+                plugin.getStorageManager().invalidateRecentCache();
                 isConverting = false;
             });
 
@@ -243,6 +266,6 @@ public class ConvertAllCommand implements CommandExecutor {
     /**
          * Data class to hold player information during conversion
          */
-        private record PlayerData(UUID uuid, String playerName, String oldData) {
+        private record PlayerData(UUID uuid, String playerName, byte[] oldData, boolean textRow) {
     }
 }
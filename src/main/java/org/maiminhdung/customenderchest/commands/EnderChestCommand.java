@@ -1,17 +1,25 @@
 package org.maiminhdung.customenderchest.commands;
 
+import com.google.common.cache.CacheStats;
 import org.bukkit.inventory.ItemStack;
 import org.maiminhdung.customenderchest.EnderChest;
 import org.maiminhdung.customenderchest.Scheduler;
 import org.maiminhdung.customenderchest.data.EnderChestManager;
+import org.maiminhdung.customenderchest.data.PayloadCodec;
+import org.maiminhdung.customenderchest.data.PlayerStatePrefetcher;
+import org.maiminhdung.customenderchest.storage.RecentChestCache;
+import org.maiminhdung.customenderchest.storage.SaveFingerprintCache;
+import org.maiminhdung.customenderchest.storage.StorageExecutor;
 import org.maiminhdung.customenderchest.storage.StorageInterface;
 import org.maiminhdung.customenderchest.utils.DataLockManager;
 import org.maiminhdung.customenderchest.locale.LocaleManager;
+import org.maiminhdung.customenderchest.storage.WriteBehindStorage;
 import org.maiminhdung.customenderchest.storage.migrate.MigrationManager;
 import org.maiminhdung.customenderchest.utils.EnderChestUtils;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -22,8 +30,10 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -61,7 +71,8 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
                  args[0].equalsIgnoreCase("delete") ||
                  args[0].equalsIgnoreCase("convertall") ||
                  args[0].equalsIgnoreCase("migrate") ||
-                 args[0].equalsIgnoreCase("stats"));
+                 args[0].equalsIgnoreCase("stats") ||
+                 args[0].equalsIgnoreCase("locks"));
 
             if (!isAdminCommand && !hasCommandPermission(p)) {
                 p.sendMessage(plugin.getLocaleManager().getPrefixedComponent("messages.no-permission"));
@@ -95,6 +106,9 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
             case "stats":
                 handleStats(sender, args);
                 break;
+            case "locks":
+                handleLocks(sender, args);
+                break;
             case "migrate":
                 handleMigrate(sender, args);
                 break;
@@ -213,22 +227,24 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
         }
 
         // For offline player
-        Scheduler.supplyAsync(() -> Bukkit.getOfflinePlayer(targetName))
+        resolveStoredPlayer(targetName)
                 .thenAccept(target -> {
-                    if (!target.hasPlayedBefore()) {
+                    if (target == null) {
                         admin.sendMessage(plugin.getLocaleManager().getPrefixedComponent("command.player-not-found", Placeholder.unparsed("player", targetName)));
                         return;
                     }
 
-                    storage.loadEnderChest(target.getUniqueId()).thenCombine(storage.loadEnderChestSize(target.getUniqueId()), (items, size) -> {
-                        if (items == null || size == 0) {
+                    storage.loadPlayerState(target.getUniqueId()).thenApply(state -> {
+                        if (state == null || state.size == 0) {
                             admin.sendMessage(plugin.getLocaleManager().getPrefixedComponent("command.player-not-found", Placeholder.unparsed("player", targetName)));
                             return null;
                         }
 
-                        Component title = EnderChestUtils.getAdminTitle(target.getName() != null ? target.getName() : targetName);
-                        Inventory inv = Bukkit.createInventory(admin, size, title);
-                        inv.setContents(items);
+                        String name = target.getName() != null ? target.getName()
+                                : state.playerName != null ? state.playerName : targetName;
+                        Component title = EnderChestUtils.getAdminTitle(name);
+                        Inventory inv = Bukkit.createInventory(admin, state.size, title);
+                        inv.setContents(state.items);
 
                         plugin.getEnderChestManager().getAdminViewedChests().put(inv, target.getUniqueId());
                         Scheduler.runEntityTask(admin, () -> {
@@ -240,6 +256,23 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
                 });
     }
 
+    /**
+     * Resolve a player by name through the storage name index instead of Bukkit's name lookup,
+     * which can block on a web request. Runs off the main thread like the lookup it replaces.
+     *
+     * @return The player, or null if they are offline and have no stored chest
+     */
+    private CompletableFuture<OfflinePlayer> resolveStoredPlayer(String targetName) {
+        return Scheduler.supplyAsync(() -> {
+            Player online = Bukkit.getPlayerExact(targetName);
+            if (online != null) {
+                return online;
+            }
+            UUID uuid = plugin.getStorageManager().findUUIDByName(targetName).join();
+            return uuid != null ? Bukkit.getOfflinePlayer(uuid) : null;
+        });
+    }
+
     /**
      * Handle /cec reload command
      * Reloads plugin configuration and locale files
@@ -294,9 +327,9 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
         }
 
         String targetName = args[1];
-        Scheduler.supplyAsync(() -> Bukkit.getOfflinePlayer(targetName))
+        resolveStoredPlayer(targetName)
                 .thenAccept(target -> {
-                    if (!target.hasPlayedBefore()) {
+                    if (target == null) {
                         sender.sendMessage(plugin.getLocaleManager().getPrefixedComponent("command.player-not-found",
                                 Placeholder.unparsed("player", targetName)));
                         return;
@@ -304,33 +337,21 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
 
                     UUID targetUUID = target.getUniqueId ();
                     String finalName = target.getName() != null ? target.getName() : targetName;
-                    DataLockManager dataLockManager = plugin.getDataLockManager();
-                    LocaleManager localeManager = plugin.getLocaleManager();
-
-                    // Use atomic tryLock to avoid race condition
-                    if (!dataLockManager.tryLock(targetUUID)) {
-                        sender.sendMessage(localeManager.getPrefixedComponent("messages.data-busy"));
-                        return;
-                    }
-
-
-                    int size;
-                    if (target.isOnline()) {
-                        size = EnderChestUtils.getSize(Objects.requireNonNull(target.getPlayer()));
-                    } else {
-                        size = storage.loadEnderChestSize(targetUUID).join();
-                    }
-
-                    if (size == 0) {
-                        dataLockManager.unlock(targetUUID);
-                        sender.sendMessage(plugin.getLocaleManager().getPrefixedComponent("command.delete-success",
-                                Placeholder.unparsed("player", finalName)));
-                        return;
-                    }
-
-                    ItemStack[] emptyItems = new ItemStack[size];
-
-                    manager.saveEnderChest(targetUUID, finalName, size, emptyItems)
+                    // Runs after anything already queued for the player, so a pending save can't restore the items
+                    plugin.getDataLockManager().submit(targetUUID, "admin-delete", () -> {
+                                CompletableFuture<Integer> size;
+                                if (target.isOnline()) {
+                                    size = CompletableFuture.completedFuture(
+                                            EnderChestUtils.getSize(Objects.requireNonNull(target.getPlayer())));
+                                } else {
+                                    size = storage.loadChestMeta(targetUUID)
+                                            .thenApply(meta -> meta != null ? meta.size : 0);
+                                }
+                                return size.thenCompose(chestSize -> chestSize == 0
+                                        ? CompletableFuture.completedFuture(null)
+                                        : manager.saveEnderChest(targetUUID, finalName, chestSize,
+                                                new ItemStack[chestSize]));
+                            })
                             .whenComplete((result, ex) -> {
                                 if (target.isOnline()) {
                                     Scheduler.runEntityTask(target.getPlayer(), () -> {
@@ -339,8 +360,6 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
                                     });
                                 }
 
-                                dataLockManager.unlock(targetUUID);
-
                                 if (ex != null) {
                                     plugin.getLogger().warning("Failed to delete enderchest data for " + finalName + ": "
                                             + ex.getMessage());
@@ -356,6 +375,73 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
                 });
     }
 
+    /**
+     * Handle /cec locks [reset]
+     * - /cec locks: show per-operation lock numbers and the players with an operation running
+     * - /cec locks reset: start counting again
+     */
+    private void handleLocks(CommandSender sender, String[] args) {
+        if (!hasSenderPermission(sender, "CustomEnderChest.admin")) {
+            sender.sendMessage(plugin.getLocaleManager().getPrefixedComponent("messages.no-permission"));
+            return;
+        }
+
+        DataLockManager locks = plugin.getDataLockManager();
+        if (args.length >= 2 && args[1].equalsIgnoreCase("reset")) {
+            locks.resetStats();
+            sender.sendMessage("§e[CustomEnderChest] Lock statistics reset.");
+            return;
+        }
+
+        sender.sendMessage("§e[CustomEnderChest] ==================== Locks ====================");
+        sender.sendMessage("§e[CustomEnderChest] Queue: §f" + locks.getPendingOperations() + " pending for "
+                + locks.getBusyPlayers() + " players, "
+                + String.format("wait avg %.2fms, max %.2fms", locks.getAvgWaitMs(), locks.getMaxWaitMs()));
+
+        Map<String, DataLockManager.OperationStats> operations = locks.getOperationStats();
+        if (operations.isEmpty()) {
+            sender.sendMessage("§e[CustomEnderChest] No operations recorded yet.");
+        }
+        operations.forEach((name, stats) -> {
+            sender.sendMessage("§e[CustomEnderChest] " + name + ": §f" + stats.getAttempts() + " attempts, "
+                    + stats.getContended() + " waited, " + stats.getRefused() + " refused, "
+                    + stats.getFailed() + " failed, "
+                    + String.format("hold avg %.2fms, max %.2fms", stats.getAvgHoldMs(), stats.getMaxHoldMs()));
+
+            Map<String, Long> blockedBy = stats.getBlockedBy();
+            if (!blockedBy.isEmpty()) {
+                sender.sendMessage("§7    blocked by: " + blockedBy.entrySet().stream()
+                        .map(entry -> entry.getKey() + " " + entry.getValue())
+                        .collect(Collectors.joining(", ")));
+            }
+
+            long[] histogram = stats.getHoldHistogram();
+            List<String> buckets = new ArrayList<>();
+            for (int i = 0; i < histogram.length; i++) {
+                if (histogram[i] == 0) {
+                    continue;
+                }
+                String bound = i < DataLockManager.OperationStats.HOLD_BUCKETS_MS.length
+                        ? "<" + DataLockManager.OperationStats.HOLD_BUCKETS_MS[i] + "ms"
+                        : ">=" + DataLockManager.OperationStats.HOLD_BUCKETS_MS[i - 1] + "ms";
+                buckets.add(bound + " " + histogram[i]);
+            }
+            if (!buckets.isEmpty()) {
+                sender.sendMessage("§7    hold: " + String.join(", ", buckets));
+            }
+        });
+
+        List<DataLockManager.HeldLock> held = locks.getHeldLocks();
+        sender.sendMessage("§e[CustomEnderChest] Held now: §f" + held.size() + (held.size() > 10 ? " (oldest 10 shown)" : ""));
+        for (DataLockManager.HeldLock lock : held.subList(0, Math.min(10, held.size()))) {
+            Player player = Bukkit.getPlayer(lock.playerUUID);
+            String name = player != null ? player.getName() : lock.playerUUID.toString();
+            sender.sendMessage("§7    " + name + ": §f" + lock.operation + " for " + lock.ageMs + "ms, "
+                    + lock.queued + " queued");
+        }
+        sender.sendMessage("§e[CustomEnderChest] ===============================================");
+    }
+
     /**
      * Handle /cec stats [validate|help]
      * - /cec stats: show storage summary
@@ -377,31 +463,37 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
         if (args.length >= 2 && args[1].equalsIgnoreCase("validate")) {
             sender.sendMessage("§e[CustomEnderChest] Validating stored data...");
 
-            storage.getPlayersWithItems()
-                    .thenAccept(players -> Scheduler.runTask(() -> {
-                        long corruptedCount = players.stream().filter(info -> info.isCorrupted).count();
-                        long overflowCount = players.stream().filter(info -> info.hasOverflow).count();
-                        long playersWithItems = players.stream().filter(info -> info.itemCount > 0).count();
+            // Records are streamed and only tallied, the first 10 corrupted ones are kept for the report
+            long[] counts = new long[3]; // with items, with overflow, corrupted
+            List<StorageInterface.PlayerDataInfo> corrupted = new ArrayList<>();
+            storage.scanPlayers(info -> {
+                if (info.itemCount > 0) {
+                    counts[0]++;
+                }
+                if (info.hasOverflow) {
+                    counts[1]++;
+                }
+                if (info.isCorrupted) {
+                    counts[2]++;
+                    if (corrupted.size() < 10) {
+                        corrupted.add(info);
+                    }
+                }
+            }, true)
+                    .thenAccept(total -> Scheduler.runTask(() -> {
+                        long corruptedCount = counts[2];
 
                         sender.sendMessage("§e[CustomEnderChest] ================== Validation ==================");
-                        sender.sendMessage("§e[CustomEnderChest] Total records: §f" + players.size());
-                        sender.sendMessage("§e[CustomEnderChest] Records with items: §f" + playersWithItems);
-                        sender.sendMessage("§e[CustomEnderChest] Records with overflow: §f" + overflowCount);
+                        sender.sendMessage("§e[CustomEnderChest] Total records: §f" + total);
+                        sender.sendMessage("§e[CustomEnderChest] Records with items: §f" + counts[0]);
+                        sender.sendMessage("§e[CustomEnderChest] Records with overflow: §f" + counts[1]);
                         sender.sendMessage("§e[CustomEnderChest] Corrupted records: §f" + corruptedCount);
 
                         if (corruptedCount > 0) {
                             sender.sendMessage("§c[CustomEnderChest] Corrupted entries (max 10 shown):");
-                            int shown = 0;
-                            for (StorageInterface.PlayerDataInfo info : players) {
-                                if (!info.isCorrupted) {
-                                    continue;
-                                }
+                            for (StorageInterface.PlayerDataInfo info : corrupted) {
                                 sender.sendMessage("§c - " + info.playerName + " (" + info.playerUUID + "): "
                                         + (info.errorMessage == null ? "Unknown error" : info.errorMessage));
-                                shown++;
-                                if (shown >= 10) {
-                                    break;
-                                }
                             }
                             if (corruptedCount > 10) {
                                 sender.sendMessage("§c... and " + (corruptedCount - 10) + " more corrupted entries.");
@@ -432,6 +524,56 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
                     sender.sendMessage("§e[CustomEnderChest] Overflow players: §f" + stats.totalOverflowPlayers);
                     sender.sendMessage("§e[CustomEnderChest] Overflow items: §f" + stats.totalOverflowItems);
                     sender.sendMessage("§e[CustomEnderChest] Data size (bytes): §f" + stats.totalDataSize);
+                    SaveFingerprintCache fingerprints = plugin.getStorageManager().getSaveFingerprints();
+                    sender.sendMessage("§e[CustomEnderChest] Unchanged saves skipped: §f" + fingerprints.getSkips()
+                            + "/" + (fingerprints.getSkips() + fingerprints.getWrites())
+                            + String.format(" (%.1f%%)", fingerprints.getSkipRatio() * 100));
+                    if (PayloadCodec.getCompressedPayloads() > 0 || PayloadCodec.getDecodedPayloads() > 0) {
+                        sender.sendMessage("§e[CustomEnderChest] Payload compression: §f"
+                                + String.format("%.1f%% of raw size, encode avg %.2fms, decode avg %.2fms",
+                                        PayloadCodec.getCompressionRatio() * 100, PayloadCodec.getAvgEncodeMs(),
+                                        PayloadCodec.getAvgDecodeMs()));
+                    }
+                    WriteBehindStorage writeBehind = plugin.getStorageManager().getWriteBehind();
+                    if (writeBehind != null) {
+                        sender.sendMessage("§e[CustomEnderChest] Write-behind queue: §f" + writeBehind.getPendingCount()
+                                + " pending, " + writeBehind.getCoalescedSaves() + "/" + writeBehind.getQueuedSaves()
+                                + " saves coalesced");
+                    }
+                    EnderChestManager chestManager = plugin.getEnderChestManager();
+                    CacheStats liveStats = chestManager.getLiveData().stats();
+                    sender.sendMessage("§e[CustomEnderChest] Live chest cache: §f"
+                            + chestManager.getLiveData().size() + " loaded (max "
+                            + chestManager.getLiveDataMaxBytes() / (1024 * 1024) + " MB), "
+                            + String.format("%.1f%% hit, ", liveStats.hitRate() * 100)
+                            + liveStats.evictionCount() + " evicted, " + chestManager.getEvictionSaves().get()
+                            + " saved on evict");
+                    RecentChestCache recentCache = plugin.getStorageManager().getRecentCache();
+                    if (recentCache != null) {
+                        sender.sendMessage("§e[CustomEnderChest] Recent chest cache: §f" + recentCache.getEntryCount()
+                                + " chests, " + String.format("%.1f/%d KB, %.1f%% hit, ",
+                                        recentCache.getTotalBytes() / 1024.0, recentCache.getMaxBytes() / 1024,
+                                        recentCache.getHitRatio() * 100)
+                                + recentCache.getEvictions() + " evicted");
+                    }
+                    PlayerStatePrefetcher prefetcher = plugin.getEnderChestManager().getPrefetcher();
+                    if (prefetcher.isEnabled()) {
+                        sender.sendMessage("§e[CustomEnderChest] Join prefetch: §f"
+                                + String.format("%.1f%% hit", prefetcher.getHitRatio() * 100) + " ("
+                                + prefetcher.getHits() + " ready, " + prefetcher.getLateHits() + " late, "
+                                + prefetcher.getMisses() + " missed, " + prefetcher.getFallbacks() + " reloaded)");
+                    }
+                    DataLockManager locks = plugin.getDataLockManager();
+                    sender.sendMessage("§e[CustomEnderChest] Player operation queue: §f"
+                            + locks.getPendingOperations() + " pending for " + locks.getBusyPlayers()
+                            + " players, deepest " + locks.getMaxQueueDepth() + ", "
+                            + String.format("wait avg %.2fms, max %.2fms", locks.getAvgWaitMs(), locks.getMaxWaitMs()));
+                    StorageExecutor executor = plugin.getStorageManager().getExecutor();
+                    sender.sendMessage("§e[CustomEnderChest] Storage executor (" + executor.getMode().name().toLowerCase()
+                            + "): §f" + executor.getActiveCount() + "/" + executor.getThreads() + " busy, "
+                            + executor.getQueueDepth() + " queued");
+                    sender.sendMessage("§e[CustomEnderChest] Storage queue wait: §f"
+                            + String.format("avg %.2fms, max %.2fms", executor.getAvgWaitMs(), executor.getMaxWaitMs()));
                     sender.sendMessage("§e[CustomEnderChest] =================================================");
                 }))
                 .exceptionally(ex -> {
@@ -459,8 +601,22 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
 
         String sourceType = args[1].toLowerCase();
         String targetType = args[2].toLowerCase();
+        MigrationManager.Mode mode = MigrationManager.Mode.RESUME;
+        if (args.length > 3) {
+            switch (args[3].toLowerCase()) {
+                case "fresh":
+                    mode = MigrationManager.Mode.FRESH;
+                    break;
+                case "verify":
+                    mode = MigrationManager.Mode.VERIFY;
+                    break;
+                default:
+                    sender.sendMessage(plugin.getLocaleManager().getPrefixedComponent("command.migrate-usage"));
+                    return;
+            }
+        }
 
-        migrationManager.startMigration(sender, sourceType, targetType);
+        migrationManager.startMigration(sender, sourceType, targetType, mode);
     }
 
     @Override
@@ -475,6 +631,7 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
                 completions.add("convertall");
                 completions.add("migrate");
                 completions.add("stats");
+                completions.add("locks");
                 completions.add("open");
             }
             return completions.stream()
@@ -488,7 +645,7 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
                 }
             }
             if (args[0].equalsIgnoreCase("migrate") && sender.hasPermission("CustomEnderChest.admin")) {
-                return List.of("yml", "h2", "mysql").stream()
+                return List.of("yml", "h2", "mysql", "segment", "binary").stream()
                         .filter(s -> s.startsWith(args[1].toLowerCase()))
                         .collect(Collectors.toList());
             }
@@ -501,14 +658,26 @@ public final class EnderChestCommand implements CommandExecutor, TabCompleter {
                         .filter(s -> s.toLowerCase().startsWith(args[1].toLowerCase()))
                         .collect(Collectors.toList());
             }
+            if (args[0].equalsIgnoreCase("locks") && sender.hasPermission("CustomEnderChest.admin")) {
+                return List.of("reset").stream()
+                        .filter(s -> s.startsWith(args[1].toLowerCase()))
+                        .collect(Collectors.toList());
+            }
         }
         if (args.length == 3) {
             if (args[0].equalsIgnoreCase("migrate") && sender.hasPermission("CustomEnderChest.admin")) {
-                return List.of("yml", "h2", "mysql").stream()
+                return List.of("yml", "h2", "mysql", "segment", "binary").stream()
                         .filter(s -> s.startsWith(args[2].toLowerCase()))
                         .collect(Collectors.toList());
             }
         }
+        if (args.length == 4) {
+            if (args[0].equalsIgnoreCase("migrate") && sender.hasPermission("CustomEnderChest.admin")) {
+                return List.of("fresh", "verify").stream()
+                        .filter(s -> s.startsWith(args[3].toLowerCase()))
+                        .collect(Collectors.toList());
+            }
+        }
         return List.of();
     }
 }
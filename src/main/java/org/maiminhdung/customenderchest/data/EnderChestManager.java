@@ -4,6 +4,7 @@ import static org.maiminhdung.customenderchest.EnderChest.ERROR_TRACKER;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
 import lombok.Getter;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Material;
@@ -11,6 +12,7 @@ import org.bukkit.inventory.ItemStack;
 import org.maiminhdung.customenderchest.EnderChest;
 import org.maiminhdung.customenderchest.Scheduler;
 import org.maiminhdung.customenderchest.locale.LocaleManager;
+import org.maiminhdung.customenderchest.storage.StorageInterface;
 import org.maiminhdung.customenderchest.utils.DataLockManager;
 import org.maiminhdung.customenderchest.utils.EnderChestUtils;
 import org.maiminhdung.customenderchest.utils.SoundHandler;
@@ -24,6 +26,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 public class EnderChestManager {
@@ -35,6 +38,8 @@ public class EnderChestManager {
     private final Cache<UUID, Inventory> liveData;
     private final Scheduler.Task autoSaveTask;
     private final Scheduler.Task inventoryTrackerTask;
+    @Getter
+    private final PlayerStatePrefetcher prefetcher;
 
     @Getter
     private final Map<Inventory, UUID> adminViewedChests = new ConcurrentHashMap<>();
@@ -43,7 +48,21 @@ public class EnderChestManager {
     private final Set<UUID> resizingPlayers = ConcurrentHashMap.newKeySet();
     private final Set<UUID> notifiedOverflowPlayers = ConcurrentHashMap.newKeySet();
     private final Map<UUID, Long> resizeCooldowns = new ConcurrentHashMap<>();
+    // Players whose cached chest has changed since it was last persisted
+    private final Set<UUID> dirtyChests = ConcurrentHashMap.newKeySet();
+    // Slots changed since the last save, for dirty chests whose every change was a tracked slot
+    private final Map<UUID, BitSet> dirtySlots = new ConcurrentHashMap<>();
+    // Chests an auto-save has taken a snapshot of but not written yet, mapped to that auto-save run
+    private final Map<UUID, Object> pendingAutoSaves = new ConcurrentHashMap<>();
     private static final long RESIZE_COOLDOWN_MS = 5000; // 5 second cooldown between resizes
+    // Inventory object, slot array and map entry on top of the serialized items
+    private static final int CACHE_ENTRY_OVERHEAD = 512;
+    @Getter
+    private final long liveDataMaxBytes;
+    @Getter
+    private final AtomicLong evictionSaves = new AtomicLong(0);
+    // Open chests being put back after eviction, a chest evicted again meanwhile is too heavy to keep
+    private final Set<UUID> reinserting = ConcurrentHashMap.newKeySet();
 
     public EnderChestManager(EnderChest plugin) {
         this.plugin = plugin;
@@ -51,10 +70,19 @@ public class EnderChestManager {
         this.dataLockManager = plugin.getDataLockManager();
 
         // Use Guava Cache to automatically clean up data for players who have been
-        // offline for a while.
+        // offline for a while. Chests are weighed by an estimate from their item count,
+        // and a changed chest that is dropped is saved first.
+        this.liveDataMaxBytes = Math.max(1, plugin.config().getInt("storage.live-cache.max-size-mb", 64))
+                * 1024L * 1024L;
         this.liveData = CacheBuilder.newBuilder()
                 .expireAfterAccess(30, TimeUnit.MINUTES)
+                .maximumWeight(liveDataMaxBytes)
+                .weigher((UUID uuid, Inventory inv) -> CACHE_ENTRY_OVERHEAD
+                        + ItemSerializer.estimateSize(inv.getContents()))
+                .removalListener(this::onLiveDataRemoval)
+                .recordStats()
                 .build();
+        this.prefetcher = new PlayerStatePrefetcher(plugin);
 
         // Start the auto-save task to prevent data loss on server crash.
         long autoSaveIntervalTicks = plugin.config().getInt("storage.auto-save-interval-seconds", 300) * 20L;
@@ -70,6 +98,15 @@ public class EnderChestManager {
         this.inventoryTrackerTask = Scheduler.runTaskTimer(this::checkOpenInventories, 20L, 20L);
     }
 
+    // Start loading player data during the async pre-login, before the player has joined.
+    public void prefetchPlayerData(UUID playerUUID) {
+        // A cached chest is newer than storage, and queued operations mean the last session is still saving
+        if (getLoadedEnderChest(playerUUID) != null || dataLockManager.isLocked(playerUUID, "prefetch")) {
+            return;
+        }
+        prefetcher.prefetch(playerUUID);
+    }
+
     // Load player data when they join the server.
     public void onPlayerJoin(Player player) {
         if (player == null || !player.isOnline()) {
@@ -79,51 +116,64 @@ public class EnderChestManager {
         // Check if data is already cached to avoid unnecessary database calls
         if (getLoadedEnderChest(player.getUniqueId()) != null) {
             plugin.getDebugLogger().log("Data for " + player.getName() + " is already cached. Skipping load.");
+            prefetcher.invalidate(player.getUniqueId());
             return;
         }
 
-        if (!dataLockManager.lock(player.getUniqueId())) {
-            plugin.getDebugLogger()
-                    .log("Attempted to load data for " + player.getName() + ", but their data is currently locked.");
-            return;
+        // Runs after a quit-save of the last session or an admin edit still in progress
+        dataLockManager.submit(player.getUniqueId(), "join-load", () -> loadPlayerData(player));
+    }
+
+    // Load a joining player's chest into the cache. Completes once the cache is ready or the load gave up.
+    private CompletableFuture<Void> loadPlayerData(Player player) {
+        // A load queued earlier may have filled the cache meanwhile
+        if (!player.isOnline() || getLoadedEnderChest(player.getUniqueId()) != null) {
+            prefetcher.invalidate(player.getUniqueId());
+            return CompletableFuture.completedFuture(null);
         }
 
-        plugin.getDebugLogger().log("Data lock acquired for " + player.getName() + ". Checking storage...");
+        plugin.getDebugLogger().log("Loading data for " + player.getName() + ". Checking storage...");
         long startTime = System.nanoTime(); // DEBUG: Start timer
+        CompletableFuture<Void> loaded = new CompletableFuture<>();
 
         final UUID currentUUID = player.getUniqueId();
         final String playerName = player.getName();
 
-        plugin.getStorageManager().getStorage().loadEnderChest(currentUUID)
-                .orTimeout(15, TimeUnit.SECONDS)
-                .thenCompose(items -> {
+        // Chest, saved size and overflow come back from a single query or file read,
+        // usually already started during pre-login
+        CompletableFuture<StorageInterface.PlayerState> load = prefetcher.take(currentUUID);
+        if (load == null) {
+            load = plugin.getStorageManager().getStorage().loadPlayerState(currentUUID);
+        }
+        load.orTimeout(15, TimeUnit.SECONDS)
+                .thenCompose(state -> {
                     // If no data found for current UUID, try to find data by player name
                     // This handles the case where player switches between online/offline mode
-                    if (items == null) {
+                    if (state == null) {
                         plugin.getDebugLogger().log("No data found for UUID " + currentUUID + ", searching by name: " + playerName);
-                        return plugin.getStorageManager().getStorage().findUUIDByName(playerName)
+                        return plugin.getStorageManager().findUUIDByName(playerName)
                                 .thenCompose(oldUUID -> {
                                     if (oldUUID != null && !oldUUID.equals(currentUUID)) {
                                         plugin.getDebugLogger().log("Found existing data under old UUID: " + oldUUID + " for player " + playerName);
                                         // Load data from old UUID and migrate it
-                                        return plugin.getStorageManager().getStorage().loadEnderChest(oldUUID)
-                                                .thenApply(oldItems -> {
-                                                    if (oldItems != null && oldItems.length > 0) {
+                                        return plugin.getStorageManager().getStorage().loadPlayerState(oldUUID)
+                                                .thenApply(oldState -> {
+                                                    if (oldState != null && oldState.items.length > 0) {
                                                         // Schedule migration of data to new UUID
-                                                        migratePlayerData(player, oldUUID, currentUUID, oldItems);
+                                                        migratePlayerData(player, oldUUID, currentUUID, oldState);
                                                     }
-                                                    return oldItems;
+                                                    return oldState;
                                                 });
                                     }
-                                    return CompletableFuture.completedFuture(null);
+                                    return CompletableFuture.<StorageInterface.PlayerState>completedFuture(null);
                                 });
                     }
-                    return CompletableFuture.completedFuture(items);
+                    return CompletableFuture.completedFuture(state);
                 })
-                .whenComplete((items, error) -> {
+                .whenComplete((state, error) -> {
                     // Check if player is still online before processing
                     if (!player.isOnline()) {
-                        dataLockManager.unlock(player.getUniqueId());
+                        loaded.complete(null);
                         return;
                     }
 
@@ -132,9 +182,9 @@ public class EnderChestManager {
                             if (error != null) {
                                 plugin.getLogger().log(Level.SEVERE, "Failed to load data for " + player.getName(),
                                         error);
-                                dataLockManager.unlock(player.getUniqueId());
                                 return;
                             }
+                            ItemStack[] items = state != null ? state.items : null;
 
                             // If items is null, it means the player has NO data in storage
                             // We should NOT cache an empty inventory as that would overwrite their data on next save
@@ -149,8 +199,6 @@ public class EnderChestManager {
                                     liveData.put(player.getUniqueId(), inv);
                                     plugin.getDebugLogger().log("Created new empty enderchest for " + player.getName());
                                 }
-                                dataLockManager.unlock(player.getUniqueId());
-                                plugin.getDebugLogger().log("Data lock released for " + player.getName());
                                 return;
                             }
 
@@ -161,33 +209,23 @@ public class EnderChestManager {
                             // Check if items is empty array (indicating deserialization failure)
                             if (items.length == 0) {
                                 //  Empty array means deserialization failed - DO NOT cache empty inventory!
-                                // Check if player actually had data in database
-                                plugin.getStorageManager().getStorage().loadEnderChestSize(player.getUniqueId())
-                                        .thenAccept(savedSize -> {
-                                            if (savedSize > 0) {
-                                                // Player had data, but it couldn't be loaded (version incompatibility)
-                                                // DO NOT put empty inventory in cache - this would delete their data!
-                                                plugin.getLogger().warning("[DATA PROTECTION] Player " + player.getName() +
-                                                        " has corrupted/incompatible data (saved size: " + savedSize +
-                                                        "). NOT loading empty inventory to prevent data loss.");
-                                                Scheduler.runEntityTask(player, () -> {
-                                                    LocaleManager locale = plugin.getLocaleManager();
-                                                    player.sendMessage(locale.getPrefixedComponent(
-                                                            "messages.migration-data-incompatible"));
-                                                    player.sendMessage(locale
-                                                            .getPrefixedComponent("messages.migration-data-cleared"));
-                                                    player.sendMessage(locale
-                                                            .getPrefixedComponent("messages.migration-contact-admin"));
-                                                });
-                                            } else {
-                                                // Player truly has no data, safe to create empty inventory
-                                                plugin.getDebugLogger().log("Player " + player.getName() + " has no saved data, creating empty inventory");
-                                                liveData.put(player.getUniqueId(), inv);
-                                            }
-                                        });
-                                // Don't put in cache yet - wait for the size check above
-                                dataLockManager.unlock(player.getUniqueId());
-                                plugin.getDebugLogger().log("Data lock released for " + player.getName());
+                                // The saved size tells whether the player actually had data
+                                int savedSize = state.size;
+                                if (savedSize > 0) {
+                                    // Player had data, but it couldn't be loaded (version incompatibility)
+                                    // DO NOT put empty inventory in cache - this would delete their data!
+                                    plugin.getLogger().warning("[DATA PROTECTION] Player " + player.getName() +
+                                            " has corrupted/incompatible data (saved size: " + savedSize +
+                                            "). NOT loading empty inventory to prevent data loss.");
+                                    LocaleManager locale = plugin.getLocaleManager();
+                                    player.sendMessage(locale.getPrefixedComponent("messages.migration-data-incompatible"));
+                                    player.sendMessage(locale.getPrefixedComponent("messages.migration-data-cleared"));
+                                    player.sendMessage(locale.getPrefixedComponent("messages.migration-contact-admin"));
+                                } else {
+                                    // Player truly has no data, safe to create empty inventory
+                                    plugin.getDebugLogger().log("Player " + player.getName() + " has no saved data, creating empty inventory");
+                                    liveData.put(player.getUniqueId(), inv);
+                                }
                                 return;
                             } else if (size > 0) {
                                 if (items.length <= size) {
@@ -213,6 +251,16 @@ public class EnderChestManager {
                                     }
 
                                     if (!overflowItems.isEmpty()) {
+                                        // Keep overflow saved earlier, it came back with the chest
+                                        if (state.overflow != null) {
+                                            for (ItemStack item : state.overflow) {
+                                                if (item != null && item.getType() != Material.AIR) {
+                                                    overflowItems.add(item);
+                                                }
+                                            }
+                                        }
+                                        // Stored row still holds the overflow slots, rewrite it on next save
+                                        markDirty(player.getUniqueId());
                                         ItemStack[] overflowArray = overflowItems.toArray(new ItemStack[0]);
                                         plugin.getStorageManager().getStorage()
                                                 .saveOverflowItems(player.getUniqueId(), overflowArray)
@@ -243,52 +291,51 @@ public class EnderChestManager {
                                 plugin.getMetricsDataProvider().recordLoad();
                             }
                         } finally {
-                            dataLockManager.unlock(player.getUniqueId());
-                            plugin.getDebugLogger().log("Data lock released for " + player.getName());
+                            loaded.complete(null);
+                            plugin.getDebugLogger().log("Load finished for " + player.getName());
                         }
                     });
                 });
+        // The entity task never runs if the player left in between
+        return loaded.orTimeout(30, TimeUnit.SECONDS);
     }
 
     /**
      * Migrate player data from old UUID to new UUID.
      * This handles the case where a player switches between online/offline mode servers.
      */
-    private void migratePlayerData(Player player, UUID oldUUID, UUID newUUID, ItemStack[] items) {
+    private void migratePlayerData(Player player, UUID oldUUID, UUID newUUID, StorageInterface.PlayerState oldState) {
         plugin.getLogger().info("[Migration] Migrating data for " + player.getName() + " from UUID " + oldUUID + " to " + newUUID);
 
-        // Get the size from old data
-        plugin.getStorageManager().getStorage().loadEnderChestSize(oldUUID).thenAccept(oldSize -> {
-            int size = oldSize > 0 ? oldSize : EnderChestUtils.getSize(player);
-
-            // Save data under new UUID
-            plugin.getStorageManager().getStorage().saveEnderChest(newUUID, player.getName(), size, items)
-                    .thenRun(() -> {
-                        plugin.getLogger().info("[Migration] Successfully migrated enderchest data for " + player.getName());
-
-                        // Also migrate overflow items if any
-                        plugin.getStorageManager().getStorage().loadOverflowItems(oldUUID).thenAccept(overflowItems -> {
-                            if (overflowItems != null && overflowItems.length > 0) {
-                                plugin.getStorageManager().getStorage().saveOverflowItems(newUUID, overflowItems)
-                                        .thenRun(() -> {
-                                            plugin.getDebugLogger().log("[Migration] Migrated overflow items for " + player.getName());
-                                            // Clear old overflow data
-                                            plugin.getStorageManager().getStorage().clearOverflowItems(oldUUID);
-                                        });
-                            }
-                        });
+        // Size and overflow were loaded together with the old chest
+        int size = oldState.size > 0 ? oldState.size : EnderChestUtils.getSize(player);
+        ItemStack[] overflowItems = oldState.overflow;
 
-                        // Optionally delete old data (commented out to keep as backup)
-                        // plugin.getStorageManager().getStorage().deleteEnderChest(oldUUID);
+        // Save data under new UUID
+        plugin.getStorageManager().getStorage().saveEnderChest(newUUID, player.getName(), size, oldState.items)
+                .thenRun(() -> {
+                    plugin.getLogger().info("[Migration] Successfully migrated enderchest data for " + player.getName());
 
-                        // Notify player about migration
-                        Scheduler.runEntityTask(player, () -> {
-                            if (player.isOnline()) {
-                                player.sendMessage(plugin.getLocaleManager().getPrefixedComponent("messages.data-migrated"));
-                            }
-                        });
+                    // Also migrate overflow items if any
+                    if (overflowItems != null && overflowItems.length > 0) {
+                        plugin.getStorageManager().getStorage().saveOverflowItems(newUUID, overflowItems)
+                                .thenRun(() -> {
+                                    plugin.getDebugLogger().log("[Migration] Migrated overflow items for " + player.getName());
+                                    // Clear old overflow data
+                                    plugin.getStorageManager().getStorage().clearOverflowItems(oldUUID);
+                                });
+                    }
+
+                    // Optionally delete old data (commented out to keep as backup)
+                    // plugin.getStorageManager().getStorage().deleteEnderChest(oldUUID);
+
+                    // Notify player about migration
+                    Scheduler.runEntityTask(player, () -> {
+                        if (player.isOnline()) {
+                            player.sendMessage(plugin.getLocaleManager().getPrefixedComponent("messages.data-migrated"));
+                        }
                     });
-        });
+                });
     }
 
     // Save player data when they leave the server.
@@ -301,45 +348,53 @@ public class EnderChestManager {
         resizingPlayers.remove(playerUuid);
         resizeCooldowns.remove(playerUuid);
         notifiedOverflowPlayers.remove(playerUuid);
+        // A login prefetched while this session was still online would miss the quit-save
+        prefetcher.invalidate(playerUuid);
 
         final String playerName = player.getName();
 
-        if (!dataLockManager.lock(playerUuid)) {
-            plugin.getDebugLogger().log("Player " + playerName + " quit, but data is locked. Skipping quit-save.");
-            return;
-        }
-
-        plugin.getDebugLogger().log("Player " + playerName + " quit. Data lock acquired for saving.");
         Inventory inv = liveData.getIfPresent(playerUuid);
-        if (inv != null) {
-            // Clone inventory contents to prevent concurrent modification
-            ItemStack[] contents = inv.getContents().clone();
+        BitSet changedSlots = getDirtySlots(playerUuid);
+        boolean dirty = clearDirty(playerUuid);
+        // A running auto-save took the changes, but drops its snapshot once the chest leaves the cache
+        if (inv != null && !dirty && !pendingAutoSaves.containsKey(playerUuid)) {
+            // Nothing changed since the last save, just drop the cache entry
+            liveData.invalidate(playerUuid);
+            recordCleanSkip();
+            plugin.getDebugLogger().log("Quit-save for " + playerName + " skipped, chest is unchanged.");
+        } else if (inv != null) {
+            // Copy the contents now, the save may wait behind other operations for this player
+            ItemStack[] contents = copyContentsForSave(inv);
             int size = inv.getSize();
 
             // Invalidate cache immediately to prevent double-save
             liveData.invalidate(playerUuid);
 
-            // Save asynchronously with timeout - DO NOT BLOCK the main thread!
-            plugin.getStorageManager().getStorage()
-                    .saveEnderChest(playerUuid, playerName, size, cleanInventoryForSave(contents))
-                    .orTimeout(10, TimeUnit.SECONDS)
-                    .whenComplete((result, ex) -> {
-                        if (ex != null) {
-                            if (ex instanceof TimeoutException) {
-                                plugin.getLogger().warning("Quit-save for " + playerName
-                                        + " timed out. Data will be recovered from auto-save.");
+            // Queued behind a load or save still running for this player instead of being skipped
+            plugin.getDebugLogger().log("Player " + playerName + " quit. Queueing quit-save.");
+            dataLockManager.submit(playerUuid, "quit-save", () -> {
+                // Save asynchronously with timeout - DO NOT BLOCK the main thread!
+                StorageInterface storage = plugin.getStorageManager().getStorage();
+                CompletableFuture<Void> quitSave = storage
+                        .saveEnderChestSlots(playerUuid, playerName, size, contents, changedSlots);
+                // Quit must be durable, write it out now instead of waiting for the next flush
+                storage.flush(playerUuid);
+                return quitSave.orTimeout(10, TimeUnit.SECONDS)
+                        .whenComplete((result, ex) -> {
+                            if (ex != null) {
+                                if (ex instanceof TimeoutException) {
+                                    plugin.getLogger().warning("Quit-save for " + playerName
+                                            + " timed out. Data will be recovered from auto-save.");
+                                } else {
+                                    plugin.getLogger().severe(
+                                            "Failed to save data for " + playerName + " on quit: " + ex.getMessage());
+                                }
                             } else {
-                                plugin.getLogger().severe(
-                                        "Failed to save data for " + playerName + " on quit: " + ex.getMessage());
+                                recordDirtySave();
+                                plugin.getDebugLogger().log("Quit-save for " + playerName + " complete.");
                             }
-                        } else {
-                            plugin.getDebugLogger().log("Quit-save for " + playerName + " complete.");
-                        }
-                        dataLockManager.unlock(playerUuid);
-                        plugin.getDebugLogger().log("Lock released for " + playerName);
-                    });
-        } else {
-            dataLockManager.unlock(playerUuid);
+                        });
+            });
         }
     }
 
@@ -349,6 +404,7 @@ public class EnderChestManager {
         }
         if (inventoryTrackerTask != null)
             inventoryTrackerTask.cancel(); // Cancel the inventory tracker task
+        prefetcher.clear();
 
         plugin.getLogger().info("Auto-save task cancelled. Saving all cached player data before shutting down...");
 
@@ -373,14 +429,13 @@ public class EnderChestManager {
             return;
         }
 
-        // Check if data is currently being loaded to prevent loops
-        if (dataLockManager.isLocked(player.getUniqueId())) {
-            player.sendMessage(plugin.getLocaleManager().getPrefixedComponent("messages.data-still-loading"));
-            return;
-        }
-
         Inventory inv = getLoadedEnderChest(player.getUniqueId());
         if (inv == null) {
+            // A load is already queued, don't pile up more of them
+            if (dataLockManager.isLocked(player.getUniqueId(), "open")) {
+                player.sendMessage(plugin.getLocaleManager().getPrefixedComponent("messages.data-still-loading"));
+                return;
+            }
             // Trigger data loading asynchronously to prevent blocking
             Scheduler.runTaskAsync(() -> {
                 if (player.isOnline()) {
@@ -404,6 +459,7 @@ public class EnderChestManager {
         if (inv.getSize() != expectedDisplaySize) {
             inv = resizeInventory(player, inv, permissionSize);
             liveData.put(player.getUniqueId(), inv);
+            markDirty(player.getUniqueId());
         }
 
         player.openInventory(inv);
@@ -540,6 +596,7 @@ public class EnderChestManager {
                         if (count > 0) {
                             // Update cache
                             liveData.put(player.getUniqueId(), inv);
+                            markDirty(player.getUniqueId());
 
                             LocaleManager locale = plugin.getLocaleManager();
                             player.sendMessage(locale.getPrefixedComponent("messages.overflow-items-restored")
@@ -568,20 +625,23 @@ public class EnderChestManager {
         
         // During shutdown, we clone inventory contents immediately
         // This is safer because we're on the main/global thread during shutdown
-        CompletableFuture<?>[] futures = cacheSnapshot.stream()
-                .map(entry -> {
-                    UUID uuid = entry.getKey();
-                    Player p = Bukkit.getPlayer(uuid);
-                    String name = (p != null) ? p.getName() : Bukkit.getOfflinePlayer(uuid).getName();
-                    Inventory inv = entry.getValue();
-                    // Clone contents immediately to avoid thread safety issues
-                    ItemStack[] contents = cleanInventoryForSave(inv.getContents().clone());
-                    int size = inv.getSize();
-                    return plugin.getStorageManager().getStorage()
-                            .saveEnderChest(uuid, name, size, contents);
-                })
-                .filter(Objects::nonNull).toArray(CompletableFuture[]::new);
-        return CompletableFuture.allOf(futures);
+        List<StorageInterface.ChestSnapshot> snapshots = new ArrayList<>(cacheSnapshot.size());
+        for (Map.Entry<UUID, Inventory> entry : cacheSnapshot) {
+            UUID uuid = entry.getKey();
+            Player p = Bukkit.getPlayer(uuid);
+            String name = (p != null) ? p.getName() : Bukkit.getOfflinePlayer(uuid).getName();
+            Inventory inv = entry.getValue();
+            // Clone contents immediately to avoid thread safety issues
+            ItemStack[] contents = cleanInventoryForSave(inv.getContents().clone());
+            snapshots.add(new StorageInterface.ChestSnapshot(uuid, name, inv.getSize(), contents));
+        }
+
+        // One batch instead of one connection per player, so large caches finish within the timeout
+        StorageInterface storage = plugin.getStorageManager().getStorage();
+        CompletableFuture<Void> saved = storage.saveEnderChestBatch(snapshots);
+        // Don't wait for the write-behind timer, it may already be cancelled
+        storage.flushAll();
+        return saved;
     }
 
     // Auto-save all cached data periodically to prevent data loss.
@@ -594,13 +654,16 @@ public class EnderChestManager {
         }
         plugin.getDebugLogger().log("Auto-saving data for " + cacheSnapshot.size() + " cached players...");
 
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<CompletableFuture<StorageInterface.ChestSnapshot>> futures = new ArrayList<>();
+        Map<UUID, Inventory> snapshotInventories = new HashMap<>();
+        Object run = new Object();
+        Runnable finish = () -> snapshotInventories.keySet().forEach(uuid -> pendingAutoSaves.remove(uuid, run));
         for (Map.Entry<UUID, Inventory> entry : cacheSnapshot) {
             UUID uuid = entry.getKey();
 
-            // Skip if data is locked (being processed elsewhere)
-            if (dataLockManager.isLocked(uuid)) {
-                plugin.getDebugLogger().log("Skipping auto-save for " + uuid + " - data is locked");
+            // Skip chests that have not changed since their last save
+            if (!isDirty(uuid)) {
+                recordCleanSkip();
                 continue;
             }
 
@@ -616,11 +679,20 @@ public class EnderChestManager {
             final String name = p.getName();
             final Inventory inv = entry.getValue();
             final int size = inv.getSize();
+            snapshotInventories.put(uuid, inv);
+            // Registered before the dirty flag is cleared, so a quit in between still saves
+            pendingAutoSaves.put(uuid, run);
+
+            // A chest that is still open can change after this snapshot, so keep it dirty
+            // and let the close-save persist the final contents.
+            if (!isChestInUse(uuid, inv)) {
+                clearDirty(uuid);
+            }
             
             // On Folia, we need to clone the inventory contents on the correct entity thread
             // to avoid cross-region thread access violations
             if (Scheduler.isFolia()) {
-                CompletableFuture<Void> future = new CompletableFuture<>();
+                CompletableFuture<StorageInterface.ChestSnapshot> future = new CompletableFuture<>();
                 final Player finalPlayer = p;
                 Scheduler.runEntityTask(p, () -> {
                     // Now we're on the correct region thread for this player
@@ -628,50 +700,97 @@ public class EnderChestManager {
                         future.complete(null);
                         return;
                     }
-                    ItemStack[] contents = cleanInventoryForSave(inv.getContents().clone());
-                    // Now save asynchronously
-                    plugin.getStorageManager().getStorage()
-                            .saveEnderChest(uuid, name, size, contents)
-                            .whenComplete((result, ex) -> {
-                                if (ex != null) {
-                                    plugin.getLogger().warning("Failed to auto-save data for " + name + ": " + ex.getMessage());
-                                } else {
-                                    plugin.getDebugLogger().log("Auto-saved data for " + name);
-                                }
-                                future.complete(null);
-                            });
+                    ItemStack[] contents = copyContentsForSave(inv);
+                    future.complete(new StorageInterface.ChestSnapshot(uuid, name, size, contents));
                 });
                 futures.add(future);
             } else {
-                // On non-Folia servers, we can safely access inventory from async thread
-                CompletableFuture<Void> future = saveEnderChest(uuid, name, inv)
-                        .exceptionally(ex -> {
-                            plugin.getLogger().warning("Failed to auto-save data for " + name + ": " + ex.getMessage());
-                            return null;
-                        });
-                futures.add(future);
+                // On non-Folia servers, we can safely access inventory from async thread.
+                // Copy the items, the snapshot waits in the player's queue before it is written.
+                ItemStack[] contents = copyContentsForSave(inv);
+                futures.add(CompletableFuture.completedFuture(new StorageInterface.ChestSnapshot(uuid, name, size, contents)));
             }
         }
 
-        // Wait for all saves to complete to ensure data consistency
-        if (!futures.isEmpty()) {
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                    .thenRun(() -> {
-                        plugin.getDebugLogger().log("Auto-save completed for all players.");
-                    });
+        if (futures.isEmpty()) {
+            return;
         }
+
+        // Collect every snapshot first, then write them in one batch
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenRun(() -> {
+            List<StorageInterface.ChestSnapshot> snapshots = new ArrayList<>(futures.size());
+            for (CompletableFuture<StorageInterface.ChestSnapshot> future : futures) {
+                StorageInterface.ChestSnapshot snapshot = future.join();
+                if (snapshot != null) {
+                    snapshots.add(snapshot);
+                }
+            }
+            if (snapshots.isEmpty()) {
+                finish.run();
+                return;
+            }
+
+            // Queued behind whatever the players already have pending, like a quit-save
+            List<UUID> uuids = snapshots.stream().map(snapshot -> snapshot.playerUUID).toList();
+            long startTime = System.nanoTime();
+            dataLockManager.submitAll(uuids, "auto-save", () -> {
+                        // A chest that was unloaded meanwhile was saved by its quit-save,
+                        // writing this older snapshot would undo that
+                        snapshots.removeIf(snapshot -> liveData.asMap()
+                                .get(snapshot.playerUUID) != snapshotInventories.get(snapshot.playerUUID));
+                        if (snapshots.isEmpty()) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        return plugin.getStorageManager().getStorage().saveEnderChestBatch(snapshots)
+                                .orTimeout(30, TimeUnit.SECONDS);
+                    })
+                    .whenComplete((result, ex) -> {
+                        finish.run();
+                        if (ex != null) {
+                            // Keep them dirty so the next auto-save or quit-save retries
+                            snapshots.forEach(snapshot -> markDirty(snapshot.playerUUID));
+                            plugin.getLogger().warning("Failed to auto-save data for " + snapshots.size()
+                                    + " players: " + ex.getMessage());
+                            return;
+                        }
+                        if (snapshots.isEmpty()) {
+                            return;
+                        }
+                        long elapsedNanos = System.nanoTime() - startTime;
+                        for (int i = 0; i < snapshots.size(); i++) {
+                            recordDirtySave();
+                            if (plugin.getMetricsDataProvider() != null) {
+                                plugin.getMetricsDataProvider().recordSave();
+                                plugin.getMetricsDataProvider().recordSaveTime(elapsedNanos / snapshots.size());
+                            }
+                        }
+                        plugin.getDebugLogger().log("Auto-save completed for " + snapshots.size() + " players in "
+                                + elapsedNanos / 1_000_000 + "ms.");
+                    });
+        });
     }
 
     // Save ender chest data with inventory object, used for online players.
     public CompletableFuture<Void> saveEnderChest(UUID uuid, String playerName, Inventory inv) {
+        return saveEnderChest(uuid, playerName, inv, null);
+    }
+
+    // Save only the changed slots of an online player's chest, or all of it when changedSlots is null.
+    // The contents are copied now and written after any operation already queued for the player.
+    public CompletableFuture<Void> saveEnderChest(UUID uuid, String playerName, Inventory inv, BitSet changedSlots) {
         long startTime = System.nanoTime(); // DEBUG: Start timer
 
         // Clean the inventory before saving - remove barriers and unlock locked items
-        ItemStack[] cleanedContents = cleanInventoryForSave(inv.getContents());
-
-        return plugin.getStorageManager().getStorage()
-                .saveEnderChest(uuid, playerName, inv.getSize(), cleanedContents)
-                .orTimeout(15, TimeUnit.SECONDS)
+        ItemStack[] cleanedContents = copyContentsForSave(inv);
+        int size = inv.getSize();
+        // The cache weighs a chest when it is stored, weigh it again now that it changed
+        liveData.asMap().replace(uuid, inv, inv);
+        // An admin saving an offline chest makes a prefetch taken before it outdated
+        prefetcher.invalidate(uuid);
+
+        return dataLockManager.submit(uuid, "save", () -> plugin.getStorageManager().getStorage()
+                        .saveEnderChestSlots(uuid, playerName, size, cleanedContents, changedSlots)
+                        .orTimeout(15, TimeUnit.SECONDS))
                 .thenRun(() -> {
                     long elapsedNanos = System.nanoTime() - startTime;
                     long duration = elapsedNanos / 1_000_000; // DEBUG: End timer
@@ -685,6 +804,17 @@ public class EnderChestManager {
                 });
     }
 
+    // Cleaned copy of a chest for a save that runs later, the inventory's items can still change
+    private ItemStack[] copyContentsForSave(Inventory inv) {
+        ItemStack[] contents = cleanInventoryForSave(inv.getContents());
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != null) {
+                contents[i] = contents[i].clone();
+            }
+        }
+        return contents;
+    }
+
     // Clean inventory contents for saving - remove null and air items
     private ItemStack[] cleanInventoryForSave(ItemStack[] contents) {
         ItemStack[] cleaned = new ItemStack[contents.length];
@@ -705,15 +835,150 @@ public class EnderChestManager {
     // Save ender chest data with specified size and items, used for offline
     // players.
     public CompletableFuture<Void> saveEnderChest(UUID uuid, String playerName, int size, ItemStack[] items) {
+        prefetcher.invalidate(uuid);
         return plugin.getStorageManager().getStorage().saveEnderChest(uuid, playerName, size, items)
                 .orTimeout(15, TimeUnit.SECONDS);
     }
 
+    // Save a changed chest that the cache dropped because it expired or the cache is full.
+    private void onLiveDataRemoval(RemovalNotification<UUID, Inventory> notification) {
+        // Quit, resize and reload remove or replace entries themselves
+        if (!notification.wasEvicted()) {
+            return;
+        }
+        UUID uuid = notification.getKey();
+        Inventory inv = notification.getValue();
+        if (uuid == null || inv == null) {
+            return;
+        }
+
+        // An open chest must stay cached so its close-save finds it
+        if (isChestInUse(uuid, inv) && reinserting.add(uuid)) {
+            try {
+                liveData.asMap().putIfAbsent(uuid, inv);
+            } finally {
+                reinserting.remove(uuid);
+            }
+            return;
+        }
+        if (!isDirty(uuid)) {
+            return;
+        }
+
+        BitSet changedSlots = getDirtySlots(uuid);
+        clearDirty(uuid);
+        Player player = Bukkit.getPlayer(uuid);
+        String playerName = player != null ? player.getName() : Bukkit.getOfflinePlayer(uuid).getName();
+        plugin.getDebugLogger().log("Cache dropped the changed chest of " + playerName + ", saving it.");
+
+        // Read the contents on the thread that owns the player, like the auto-save does
+        CompletableFuture<ItemStack[]> contents = new CompletableFuture<>();
+        Runnable capture = () -> contents.complete(copyContentsForSave(inv));
+        if (player != null) {
+            Scheduler.runEntityTask(player, capture);
+        } else {
+            Scheduler.runTask(capture);
+        }
+
+        prefetcher.invalidate(uuid);
+        // Queued right away, so a load started after the eviction reads the saved chest. A failed save puts
+        // the chest back before the task completes, so a load queued behind it finds the cached chest.
+        dataLockManager.submit(uuid, "evict-save", () -> contents.thenCompose(items -> plugin.getStorageManager()
+                                .getStorage().saveEnderChestSlots(uuid, playerName, inv.getSize(), items, changedSlots))
+                        .orTimeout(15, TimeUnit.SECONDS)
+                        .whenComplete((result, ex) -> {
+                            if (ex != null) {
+                                plugin.getLogger().warning("Failed to save the evicted chest of " + playerName
+                                        + ", keeping it cached: " + ex.getMessage());
+                                liveData.asMap().putIfAbsent(uuid, inv);
+                                markDirty(uuid);
+                            } else {
+                                evictionSaves.incrementAndGet();
+                                recordDirtySave();
+                            }
+                        }));
+    }
+
     // Get the cached inventory for a player, or null if not loaded.
     public Inventory getLoadedEnderChest(UUID uuid) {
         return liveData.getIfPresent(uuid);
     }
 
+    /**
+     * Mark a player's cached chest as changed so the next save path writes it.
+     *
+     * @param uuid The owner of the chest
+     */
+    public void markDirty(UUID uuid) {
+        // The change is not tied to known slots, the next save must write the whole chest
+        dirtySlots.remove(uuid);
+        dirtyChests.add(uuid);
+    }
+
+    /**
+     * Mark single slots of a player's cached chest as changed. If the chest already has
+     * untracked changes it stays a full save.
+     *
+     * @param uuid  The owner of the chest
+     * @param slots The changed slots
+     */
+    public void markSlotsDirty(UUID uuid, BitSet slots) {
+        if (dirtyChests.add(uuid)) {
+            dirtySlots.put(uuid, (BitSet) slots.clone());
+        } else {
+            dirtySlots.computeIfPresent(uuid, (id, current) -> {
+                current.or(slots);
+                return current;
+            });
+        }
+    }
+
+    /**
+     * Get the slots changed since the last save.
+     *
+     * @param uuid The owner of the chest
+     * @return A copy of the changed slots, or null if the whole chest must be saved
+     */
+    public BitSet getDirtySlots(UUID uuid) {
+        BitSet slots = dirtySlots.get(uuid);
+        return slots != null ? (BitSet) slots.clone() : null;
+    }
+
+    // Check if a player's cached chest has unsaved changes.
+    public boolean isDirty(UUID uuid) {
+        return dirtyChests.contains(uuid);
+    }
+
+    /**
+     * Clear the dirty flag of a player's chest before saving it.
+     * Callers should {@link #markDirty(UUID)} again if the save fails.
+     *
+     * @param uuid The owner of the chest
+     * @return true if the chest had unsaved changes
+     */
+    public boolean clearDirty(UUID uuid) {
+        dirtySlots.remove(uuid);
+        return dirtyChests.remove(uuid);
+    }
+
+    // Check if the player or an admin is currently looking at this chest.
+    private boolean isChestInUse(UUID uuid, Inventory inv) {
+        return openInventories.containsKey(uuid) || adminViewedChests.containsValue(uuid)
+                || !inv.getViewers().isEmpty();
+    }
+
+    public void recordDirtySave() {
+        if (plugin.getMetricsDataProvider() != null) {
+            plugin.getMetricsDataProvider().recordDirtySave();
+        }
+    }
+
+    public void recordCleanSkip() {
+        if (plugin.getMetricsDataProvider() != null) {
+            plugin.getMetricsDataProvider().recordCleanSkip();
+        }
+    }
+
     // Tracker for currently open ender chest inventories.
     private void checkOpenInventories() {
         if (openInventories.isEmpty())
@@ -841,6 +1106,7 @@ public class EnderChestManager {
     // changes.
     public void reloadCacheFor(Player player) {
         int size = EnderChestUtils.getSize(player);
+        clearDirty(player.getUniqueId());
         if (size == 0) {
             liveData.invalidate(player.getUniqueId());
             return;
@@ -877,6 +1143,7 @@ public class EnderChestManager {
         }
 
         liveData.put(player.getUniqueId(), newInv);
+        markDirty(player.getUniqueId());
         plugin.getDebugLogger().log("Cache updated with items for player " + player.getName());
     }
 }
@@ -30,6 +30,9 @@ import java.util.stream.Stream;
 public final class ItemSerializer {
 
     private static final Logger LOGGER = Logger.getLogger(ItemSerializer.class.getName());
+    // Rough in-memory cost of a slot and of an item with typical components, for cache weights
+    private static final int EMPTY_SLOT_BYTES = 8;
+    private static final int AVERAGE_ITEM_BYTES = 256;
 
     /**
      * Serialize ItemStack array to Base64 string using Paper's data component API
@@ -40,9 +43,25 @@ public final class ItemSerializer {
      * @throws IOException if serialization fails
      */
     public static String toBase64(ItemStack[] items) throws IOException {
-        if (items == null || items.length == 0) {
+        byte[] bytes = toBytes(items);
+        if (bytes.length == 0) {
             return "";
         }
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * Serialize ItemStack array to raw bytes using Paper's data component API.
+     * Same framing as {@link #toBase64(ItemStack[])} without the Base64 step, for binary columns.
+     *
+     * @param items Array of ItemStack to serialize
+     * @return Serialized items, or an empty array if there is nothing to store
+     * @throws IOException if serialization fails
+     */
+    public static byte[] toBytes(ItemStack[] items) throws IOException {
+        if (items == null || items.length == 0) {
+            return new byte[0];
+        }
 
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
              DataOutputStream dataOutput = new DataOutputStream(outputStream)) {
@@ -66,10 +85,23 @@ public final class ItemSerializer {
                 }
             }
 
-            return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+            dataOutput.flush();
+            return outputStream.toByteArray();
         }
     }
 
+    /**
+     * Estimate how many bytes a chest takes, used to weigh cached inventories.
+     * Counts slots only, so it is cheap enough to run on the main thread on every cache write.
+     *
+     * @param items Chest contents, may be null
+     * @return Rough size of the chest in memory
+     */
+    public static int estimateSize(ItemStack[] items) {
+        int slots = items != null ? items.length : 0;
+        return slots * EMPTY_SLOT_BYTES + countItems(items) * AVERAGE_ITEM_BYTES;
+    }
+
     /**
      * Deserialize ItemStack array from Base64 string using Paper's data component API
      * This method uses Paper's DataFixer to automatically upgrade old component formats
@@ -90,6 +122,22 @@ public final class ItemSerializer {
             LOGGER.log(Level.WARNING, "Invalid Base64 data, returning empty inventory");
             return new ItemStack[0];
         }
+        return fromBytes(bytes);
+    }
+
+    /**
+     * Deserialize ItemStack array from raw bytes, detecting compressed, Paper and legacy formats.
+     *
+     * @param bytes Serialized items as written by {@link #toBytes(ItemStack[])} or the legacy serializer
+     * @return Array of deserialized ItemStacks, or empty array if data is invalid
+     * @throws IOException if deserialization fails
+     */
+    public static ItemStack[] fromBytes(byte[] bytes) throws IOException {
+        if (bytes == null || bytes.length == 0) {
+            return new ItemStack[0];
+        }
+        // Compressed payloads carry a header, uncompressed ones are returned as they are
+        bytes = PayloadCodec.decode(bytes);
 
         // Try to detect format by reading first 4 bytes (array length)
         try (ByteArrayInputStream peekStream = new ByteArrayInputStream(bytes);
@@ -118,6 +166,156 @@ public final class ItemSerializer {
         }
     }
 
+    /**
+     * Count the non-empty slots of a chest.
+     *
+     * @param items Chest contents, may be null
+     * @return Number of slots holding an item
+     */
+    public static int countItems(ItemStack[] items) {
+        int count = 0;
+        if (items != null) {
+            for (ItemStack item : items) {
+                if (item != null && !item.getType().isAir()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Decode a Base64 column value into the raw serialized bytes without deserializing the items.
+     *
+     * @param data Base64 text, may be null or empty
+     * @return The decoded bytes, or an empty array for null or empty input
+     * @throws IllegalArgumentException if the text is not valid Base64
+     */
+    public static byte[] decodeBase64(String data) {
+        if (data == null || data.isEmpty()) {
+            return new byte[0];
+        }
+        return Base64.getDecoder().decode(data);
+    }
+
+    /**
+     * Check if stored bytes hold items in the format written by {@link #toBytes(ItemStack[])},
+     * with or without a payload header, rather than the legacy serializer. Such payloads can be
+     * copied between storages without deserializing the items.
+     *
+     * @param bytes Stored bytes, may be null
+     * @return true for Paper format payloads, false for empty or legacy data
+     */
+    public static boolean isPaperFormat(byte[] bytes) {
+        if (bytes == null || bytes.length < 4) {
+            return false;
+        }
+        if (PayloadCodec.hasHeader(bytes)) {
+            return true;
+        }
+        int length = ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+        return length >= 0 && length <= 256;
+    }
+
+    /**
+     * Split a Paper format payload into the bytes of each slot without deserializing any item.
+     *
+     * @param bytes Payload as written by {@link #toBytes(ItemStack[])}, with or without a payload header
+     * @return Paper's item bytes per slot, null for empty slots
+     * @throws IOException if the payload is not valid Paper format
+     */
+    public static byte[][] splitSlots(byte[] bytes) throws IOException {
+        if (bytes == null || bytes.length == 0) {
+            return new byte[0][];
+        }
+        try (DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(PayloadCodec.decode(bytes)))) {
+            int length = dataInput.readInt();
+            if (length < 0 || length > 256) {
+                throw new IOException("Invalid array length: " + length);
+            }
+            byte[][] slots = new byte[length][];
+            for (int i = 0; i < length; i++) {
+                if (dataInput.readBoolean()) {
+                    int itemBytesLength = dataInput.readInt();
+                    if (itemBytesLength < 0 || itemBytesLength > 1_000_000) {
+                        throw new IOException("Invalid item data size at slot " + i + ": " + itemBytesLength);
+                    }
+                    slots[i] = new byte[itemBytesLength];
+                    dataInput.readFully(slots[i]);
+                }
+            }
+            return slots;
+        }
+    }
+
+    /**
+     * Frame slot bytes the same way as {@link #toBytes(ItemStack[])}, the reverse of {@link #splitSlots(byte[])}.
+     *
+     * @param slots Paper's item bytes per slot, null for empty slots
+     * @return The payload, or an empty array if there are no slots
+     */
+    public static byte[] joinSlots(byte[][] slots) throws IOException {
+        if (slots == null || slots.length == 0) {
+            return new byte[0];
+        }
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+             DataOutputStream dataOutput = new DataOutputStream(outputStream)) {
+            dataOutput.writeInt(slots.length);
+            for (byte[] slot : slots) {
+                dataOutput.writeBoolean(slot != null);
+                if (slot != null) {
+                    dataOutput.writeInt(slot.length);
+                    dataOutput.write(slot);
+                }
+            }
+            dataOutput.flush();
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * Count the non-empty slots of a Paper format payload without deserializing any item.
+     *
+     * @param bytes Payload as written by {@link #toBytes(ItemStack[])}, with or without a payload header
+     * @return Number of slots holding an item
+     * @throws IOException if the payload is not valid Paper format
+     */
+    public static int countSerializedItems(byte[] bytes) throws IOException {
+        int count = 0;
+        for (byte[] slot : splitSlots(bytes)) {
+            if (slot != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Serialize a single slot for per-slot storage.
+     *
+     * @param item The item, may be null
+     * @return Paper's item bytes, or null for an empty slot
+     */
+    public static byte[] itemToBytes(ItemStack item) {
+        if (item == null || item.getType().isAir()) {
+            return null;
+        }
+        return item.serializeAsBytes();
+    }
+
+    /**
+     * Deserialize a single slot written by {@link #itemToBytes(ItemStack)}.
+     *
+     * @param bytes Paper's item bytes, may be null
+     * @return The item, or null for an empty slot
+     */
+    public static ItemStack itemFromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return ItemStack.deserializeBytes(bytes);
+    }
+
     /**
      * Deserialize new Paper format (raw bytes)
      */
@@ -1,6 +1,7 @@
 package org.maiminhdung.customenderchest.data;
 
 import org.maiminhdung.customenderchest.EnderChest;
+import org.maiminhdung.customenderchest.storage.StorageManager;
 
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -19,6 +20,8 @@ public class MetricsDataProvider {
     private final AtomicLong loadCount = new AtomicLong(0);
     private final AtomicLong totalSaveTimeNanos = new AtomicLong(0);
     private final AtomicLong saveTimeSamples = new AtomicLong(0);
+    private final AtomicLong dirtySaves = new AtomicLong(0);
+    private final AtomicLong cleanSkips = new AtomicLong(0);
 
     public MetricsDataProvider(EnderChest plugin) {
         this.plugin = plugin;
@@ -42,6 +45,16 @@ public class MetricsDataProvider {
         saveTimeSamples.incrementAndGet();
     }
 
+    /** Increment when a changed chest is written by a quit, close or auto-save. */
+    public void recordDirtySave() {
+        dirtySaves.incrementAndGet();
+    }
+
+    /** Increment when a quit, close or auto-save is skipped because the chest is unchanged. */
+    public void recordCleanSkip() {
+        cleanSkips.incrementAndGet();
+    }
+
     // --- Read by FastStats metric suppliers ---
 
     public long getSaveCount() {
@@ -52,6 +65,14 @@ public class MetricsDataProvider {
         return loadCount.get();
     }
 
+    public long getWrittenDirtySaves() {
+        return dirtySaves.get();
+    }
+
+    public long getSkippedCleanSaves() {
+        return cleanSkips.get();
+    }
+
     /** Returns loaded chests count from the Guava live cache (O(1)). */
     public int getLoadedChests() {
         try {
@@ -72,6 +93,18 @@ public class MetricsDataProvider {
         }
     }
 
+    /** Returns the number of storage operations waiting for an I/O thread. */
+    public int getStorageQueueDepth() {
+        StorageManager storageManager = plugin.getStorageManager();
+        return storageManager != null ? storageManager.getExecutor().getQueueDepth() : 0;
+    }
+
+    /** Returns the average time storage operations waited for an I/O thread, in milliseconds. */
+    public double getStorageAvgWaitMs() {
+        StorageManager storageManager = plugin.getStorageManager();
+        return storageManager != null ? storageManager.getExecutor().getAvgWaitMs() : 0.0;
+    }
+
     /** Returns average save time in milliseconds since startup. */
     public double getAvgSaveTimeMs() {
         long samples = saveTimeSamples.get();
@@ -0,0 +1,272 @@
+package org.maiminhdung.customenderchest.data;
+
+import org.bukkit.Bukkit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Header and compression codecs for stored chest payloads.
+ * <p>
+ * Every payload written by this version starts with a header. Rows from older versions start with
+ * the slot count, or a Java serialization header for legacy data, and keep loading unchanged:
+ * <pre>
+ * byte   MAGIC (0xCE)
+ * byte   header version
+ * byte   codec id
+ * int    uncompressed length
+ * int    server data version the items were written with (header version 2+)
+ * byte[] body
+ * </pre>
+ * The header tells the loader whether a row needs rewriting without serializing the items again,
+ * see {@link #needsRewrite(byte[])}. Payloads below the threshold, or that do not get smaller,
+ * are stored with the {@link #NONE} codec.
+ */
+public enum PayloadCodec {
+    NONE(0),
+    DEFLATE(1);
+
+    public static final byte MAGIC = (byte) 0xCE;
+    public static final byte HEADER_VERSION = 2;
+    public static final int HEADER_SIZE = 11;
+    // Version 1 headers had no data version field
+    private static final int HEADER_SIZE_V1 = 7;
+
+    // Refuse to inflate anything larger than this, a chest never comes close
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+
+    private static final AtomicLong compressedPayloads = new AtomicLong(0);
+    private static final AtomicLong rawBytes = new AtomicLong(0);
+    private static final AtomicLong storedBytes = new AtomicLong(0);
+    private static final AtomicLong encodeNanos = new AtomicLong(0);
+    private static final AtomicLong decodedPayloads = new AtomicLong(0);
+    private static final AtomicLong decodeNanos = new AtomicLong(0);
+
+    private static volatile int currentDataVersion = -1;
+
+    private final int id;
+
+    PayloadCodec(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static PayloadCodec fromId(int id) throws IOException {
+        for (PayloadCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IOException("Unknown payload codec id: " + id);
+    }
+
+    public static PayloadCodec fromConfig(String value) {
+        return "deflate".equalsIgnoreCase(value) ? DEFLATE : NONE;
+    }
+
+    /**
+     * Check if a stored payload starts with the payload header.
+     */
+    public static boolean hasHeader(byte[] stored) {
+        return stored != null && stored.length >= HEADER_SIZE_V1 && stored[0] == MAGIC;
+    }
+
+    /**
+     * Decide from the first bytes whether a stored payload should be rewritten in the current format.
+     * True for rows without a header (raw or legacy), older header versions, and items written by
+     * an older Minecraft version that Paper upgrades on load.
+     *
+     * @param stored Bytes read from storage
+     * @return true if the loaded items should be saved again
+     */
+    public static boolean needsRewrite(byte[] stored) {
+        if (stored == null || stored.length == 0) {
+            return false;
+        }
+        if (!hasHeader(stored)) {
+            return true;
+        }
+        if (stored[1] < HEADER_VERSION || stored.length < HEADER_SIZE) {
+            return true;
+        }
+        int dataVersion = ByteBuffer.wrap(stored, 7, 4).getInt();
+        return dataVersion < getCurrentDataVersion();
+    }
+
+    // Data version of the running server, 0 if it cannot be read
+    @SuppressWarnings("deprecation")
+    private static int getCurrentDataVersion() {
+        int version = currentDataVersion;
+        if (version < 0) {
+            try {
+                version = Bukkit.getUnsafe().getDataVersion();
+            } catch (Throwable e) {
+                version = 0;
+            }
+            currentDataVersion = version;
+        }
+        return version;
+    }
+
+    /**
+     * Compress a serialized payload for storage.
+     *
+     * @param raw       Bytes from {@link ItemSerializer#toBytes}
+     * @param codec     Codec configured for the backend
+     * @param threshold Payloads smaller than this are stored raw
+     * @return The bytes to store
+     */
+    public static byte[] encode(byte[] raw, PayloadCodec codec, int threshold) throws IOException {
+        if (raw.length == 0) {
+            return raw;
+        }
+
+        PayloadCodec used = NONE;
+        byte[] body = raw;
+        if (codec != NONE && raw.length >= threshold) {
+            long start = System.nanoTime();
+            byte[] deflated = deflate(raw);
+            encodeNanos.addAndGet(System.nanoTime() - start);
+            compressedPayloads.incrementAndGet();
+            rawBytes.addAndGet(raw.length);
+
+            // Only keep the compressed body if it actually saves space
+            if (deflated.length < raw.length) {
+                used = codec;
+                body = deflated;
+            }
+            storedBytes.addAndGet(body.length);
+        }
+
+        return ByteBuffer.allocate(HEADER_SIZE + body.length)
+                .put(MAGIC)
+                .put(HEADER_VERSION)
+                .put((byte) used.id)
+                .putInt(raw.length)
+                .putInt(getCurrentDataVersion())
+                .put(body)
+                .array();
+    }
+
+    /**
+     * Undo {@link #encode}. Payloads without the header are returned as they are.
+     *
+     * @param stored Bytes read from storage
+     * @return The serialized payload
+     * @throws IOException if the header or compressed body is invalid
+     */
+    public static byte[] decode(byte[] stored) throws IOException {
+        if (!hasHeader(stored)) {
+            return stored;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(stored);
+        buffer.get(); // magic
+        byte version = buffer.get();
+        int headerSize;
+        if (version == 1) {
+            headerSize = HEADER_SIZE_V1;
+        } else if (version == HEADER_VERSION && stored.length >= HEADER_SIZE) {
+            headerSize = HEADER_SIZE;
+        } else {
+            throw new IOException("Unsupported payload header version: " + version);
+        }
+        PayloadCodec codec = fromId(buffer.get());
+        int rawLength = buffer.getInt();
+        if (rawLength < 0 || rawLength > MAX_PAYLOAD_SIZE) {
+            throw new IOException("Invalid uncompressed payload length: " + rawLength);
+        }
+
+        if (codec == NONE) {
+            if (stored.length - headerSize != rawLength) {
+                throw new IOException("Payload length does not match header");
+            }
+            return Arrays.copyOfRange(stored, headerSize, stored.length);
+        }
+
+        long start = System.nanoTime();
+        byte[] raw = inflate(stored, headerSize, stored.length - headerSize, rawLength);
+        decodeNanos.addAndGet(System.nanoTime() - start);
+        decodedPayloads.incrementAndGet();
+        return raw;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(chunk);
+                out.write(chunk, 0, written);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int offset, int length, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input, offset, length);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength || !inflater.finished()) {
+                throw new IOException("Compressed payload is truncated or corrupt");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed payload is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // --- Statistics for /cec stats ---
+
+    public static long getCompressedPayloads() {
+        return compressedPayloads.get();
+    }
+
+    /** Stored size as a fraction of the uncompressed size, for payloads that went through a codec. */
+    public static double getCompressionRatio() {
+        long raw = rawBytes.get();
+        if (raw == 0) return 1.0;
+        return storedBytes.get() / (double) raw;
+    }
+
+    public static double getAvgEncodeMs() {
+        long count = compressedPayloads.get();
+        if (count == 0) return 0.0;
+        return (encodeNanos.get() / (double) count) / 1_000_000.0;
+    }
+
+    public static long getDecodedPayloads() {
+        return decodedPayloads.get();
+    }
+
+    public static double getAvgDecodeMs() {
+        long count = decodedPayloads.get();
+        if (count == 0) return 0.0;
+        return (decodeNanos.get() / (double) count) / 1_000_000.0;
+    }
+}
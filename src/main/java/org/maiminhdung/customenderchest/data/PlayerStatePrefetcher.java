@@ -0,0 +1,158 @@
+package org.maiminhdung.customenderchest.data;
+
+import org.maiminhdung.customenderchest.EnderChest;
+import org.maiminhdung.customenderchest.storage.StorageInterface;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts loading a player's chest during the async pre-login, so the data is usually ready
+ * by the time the player joins.
+ * <p>
+ * Loads are parked for a short time only. A player who never finishes logging in leaves
+ * an entry that is dropped on the next prefetch or when it is taken after expiring.
+ * <p>
+ * The load is queued in the player's {@link org.maiminhdung.customenderchest.utils.DataLockManager}
+ * mailbox, so it reads what earlier operations wrote. Saves and deletes queued later must
+ * {@link #invalidate(UUID)} the prefetch.
+ */
+public class PlayerStatePrefetcher {
+
+    private final EnderChest plugin;
+    private final Map<UUID, Prefetch> pending = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final long timeoutMillis;
+
+    // Ready at join, still loading at join, nothing prefetched, prefetch failed or timed out
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong lateHits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong fallbacks = new AtomicLong(0);
+
+    public PlayerStatePrefetcher(EnderChest plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.config().getBoolean("storage.prefetch.enabled", true);
+        this.ttlMillis = Math.max(1, plugin.config().getInt("storage.prefetch.ttl-seconds", 30)) * 1000L;
+        this.timeoutMillis = Math.max(1, plugin.config().getInt("storage.prefetch.timeout-ms", 3000));
+    }
+
+    /**
+     * Start loading the player's state in the background. Called off the main thread.
+     */
+    public void prefetch(UUID playerUUID) {
+        if (!enabled) {
+            return;
+        }
+        purgeExpired();
+        // Parked before the load is queued, so an operation queued after it can always invalidate it
+        CompletableFuture<StorageInterface.PlayerState> future = new CompletableFuture<>();
+        pending.put(playerUUID, new Prefetch(future, System.currentTimeMillis()));
+        plugin.getDataLockManager().submit(playerUUID, "prefetch-load",
+                        () -> plugin.getStorageManager().getStorage().loadPlayerState(playerUUID))
+                .whenComplete((state, ex) -> {
+                    if (ex != null) {
+                        future.completeExceptionally(ex);
+                    } else {
+                        future.complete(state);
+                    }
+                });
+        plugin.getDebugLogger().log("Prefetching ender chest data for " + playerUUID + " during pre-login.");
+    }
+
+    /**
+     * Take the prefetched load for a joining player. Falls back to a fresh load if the prefetch
+     * failed or is not done within the timeout.
+     *
+     * @return The prefetched load, or null if there is none and the caller should load normally
+     */
+    public CompletableFuture<StorageInterface.PlayerState> take(UUID playerUUID) {
+        Prefetch prefetch = pending.remove(playerUUID);
+        if (prefetch == null || prefetch.isExpired(ttlMillis)) {
+            if (enabled) {
+                misses.incrementAndGet();
+            }
+            return null;
+        }
+        if (prefetch.future.isDone() && !prefetch.future.isCompletedExceptionally()) {
+            hits.incrementAndGet();
+            return prefetch.future;
+        }
+        if (!prefetch.future.isDone()) {
+            lateHits.incrementAndGet();
+        }
+        return prefetch.future
+                .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .handle((state, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(state);
+                    }
+                    fallbacks.incrementAndGet();
+                    plugin.getDebugLogger().log("Prefetch for " + playerUUID + " failed or timed out ("
+                            + error.getMessage() + "), loading again.");
+                    return plugin.getStorageManager().getStorage().loadPlayerState(playerUUID);
+                })
+                .thenCompose(future -> future);
+    }
+
+    // Drop a prefetch whose data may be outdated, e.g. the previous session is still saving
+    public void invalidate(UUID playerUUID) {
+        pending.remove(playerUUID);
+    }
+
+    public void clear() {
+        pending.clear();
+    }
+
+    private void purgeExpired() {
+        pending.values().removeIf(prefetch -> prefetch.isExpired(ttlMillis));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getLateHits() {
+        return lateHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + lateHits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) (hits.get() + lateHits.get()) / total;
+    }
+
+    private static class Prefetch {
+        final CompletableFuture<StorageInterface.PlayerState> future;
+        final long createdAt;
+
+        Prefetch(CompletableFuture<StorageInterface.PlayerState> future, long createdAt) {
+            this.future = future;
+            this.createdAt = createdAt;
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - createdAt > ttlMillis;
+        }
+    }
+}
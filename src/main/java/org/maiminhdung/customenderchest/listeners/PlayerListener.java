@@ -7,9 +7,11 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
+import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
@@ -18,9 +20,9 @@ import org.maiminhdung.customenderchest.Scheduler;
 import org.maiminhdung.customenderchest.EnderChest;
 import org.maiminhdung.customenderchest.data.EnderChestManager;
 import org.maiminhdung.customenderchest.locale.LocaleManager;
-import org.maiminhdung.customenderchest.utils.DataLockManager;
 import org.maiminhdung.customenderchest.utils.DebugLogger;
 
+import java.util.BitSet;
 import java.util.UUID;
 
 public class PlayerListener implements Listener {
@@ -33,6 +35,15 @@ public class PlayerListener implements Listener {
         this.debug = plugin.getDebugLogger();
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        // Only players that are actually let in, other plugins may have denied the login
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        plugin.getEnderChestManager().prefetchPlayerData(event.getUniqueId());
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
@@ -130,7 +141,7 @@ public class PlayerListener implements Listener {
         if (event.isCancelled())
             return;
 
-        syncInventoryChange(player, event.getInventory());
+        syncInventoryChange(player, event.getInventory(), changedTopSlots(event));
     }
 
     // Handle inventory drag events (shift-click, drag multiple items, etc.)
@@ -141,14 +152,42 @@ public class PlayerListener implements Listener {
         if (event.isCancelled())
             return;
 
-        syncInventoryChange(player, event.getInventory());
+        BitSet slots = new BitSet();
+        int topSize = event.getView().getTopInventory().getSize();
+        for (int rawSlot : event.getRawSlots()) {
+            if (rawSlot < topSize) {
+                slots.set(rawSlot);
+            }
+        }
+        syncInventoryChange(player, event.getInventory(), slots);
+    }
+
+    /**
+     * Work out which slots of the top inventory a click changes.
+     *
+     * @return The changed slots, or null if the click can touch any slot
+     */
+    private static BitSet changedTopSlots(InventoryClickEvent event) {
+        InventoryAction action = event.getAction();
+        if (action == InventoryAction.COLLECT_TO_CURSOR || action == InventoryAction.UNKNOWN) {
+            return null;
+        }
+        int rawSlot = event.getRawSlot();
+        BitSet slots = new BitSet();
+        if (rawSlot >= 0 && rawSlot < event.getView().getTopInventory().getSize()) {
+            slots.set(rawSlot);
+        } else if (action == InventoryAction.MOVE_TO_OTHER_INVENTORY) {
+            // Shift-click from the player inventory, the server picks the target slots
+            return null;
+        }
+        return slots;
     }
 
     /**
      * Syncs inventory changes bidirectionally between admin views and player
      * inventories
      */
-    private void syncInventoryChange(Player player, Inventory clickedInv) {
+    private void syncInventoryChange(Player player, Inventory clickedInv, BitSet changedSlots) {
         EnderChestManager manager = plugin.getEnderChestManager();
 
         // === CASE 1: Admin is viewing someone's enderchest ===
@@ -161,6 +200,7 @@ public class PlayerListener implements Listener {
                     Inventory targetLiveInv = manager.getLoadedEnderChest(targetUuid);
                     if (targetLiveInv != null) {
                         targetLiveInv.setContents(clickedInv.getContents());
+                        manager.markDirty(targetUuid);
                         debug.log("Admin->Player sync: " + player.getName() +
                                 " modified " + targetPlayer.getName() + "'s enderchest");
                     }
@@ -173,6 +213,12 @@ public class PlayerListener implements Listener {
         // Check if this player's inventory is being viewed by any admin
         Inventory playerLiveInv = manager.getLoadedEnderChest(player.getUniqueId());
         if (playerLiveInv != null && clickedInv.equals(playerLiveInv)) {
+            if (changedSlots == null) {
+                manager.markDirty(player.getUniqueId());
+            } else if (!changedSlots.isEmpty()) {
+                manager.markSlotsDirty(player.getUniqueId(), changedSlots);
+            }
+
             // Find if any admin is viewing this player's inventory
             for (var entry : manager.getAdminViewedChests().entrySet()) {
                 if (entry.getValue().equals(player.getUniqueId())) {
@@ -209,13 +255,6 @@ public class PlayerListener implements Listener {
             if (targetUUID == null)
                 return;
 
-            DataLockManager dataLockManager = plugin.getDataLockManager();
-
-            if (!dataLockManager.tryLock(targetUUID)) {
-                player.sendMessage(localeManager.getPrefixedComponent("messages.data-still-loading"));
-                return;
-            }
-
             try {
                 debug.log("Admin " + player.getName() + " finished editing " + targetUUID + "'s chest. Saving data...");
 
@@ -228,6 +267,7 @@ public class PlayerListener implements Listener {
                     Inventory targetLiveInv = manager.getLoadedEnderChest(targetUUID);
                     if (targetLiveInv != null) {
                         targetLiveInv.setContents(closedInventory.getContents());
+                        manager.markDirty(targetUUID);
                         debug.log("Final sync completed for online player: " + targetName);
                     }
                 } else {
@@ -236,6 +276,7 @@ public class PlayerListener implements Listener {
                 }
 
                 // Save to database async with timeout - DO NOT block!
+                // The save is queued behind any other operation on the target's data
                 String finalTargetName = targetName;
                 manager.saveEnderChest(targetUUID, finalTargetName, closedInventory)
                         .orTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
@@ -246,15 +287,11 @@ public class PlayerListener implements Listener {
                             } else {
                                 debug.log("Data for player " + finalTargetName + " saved successfully by admin.");
                             }
-                            // Unlock in whenComplete to guarantee it's called
-                            dataLockManager.unlock(targetUUID);
                         });
 
                 plugin.getSoundHandler().playSound(player, "close");
 
             } catch (Exception e) {
-                // In case of any unexpected error, make sure to unlock
-                dataLockManager.unlock(targetUUID);
                 player.sendMessage(localeManager.getPrefixedComponent("messages.save-error"));
                 e.printStackTrace();
             }
@@ -266,25 +303,27 @@ public class PlayerListener implements Listener {
             plugin.getSoundHandler().playSound(player, "close");
 
             // Save data immediately when player closes their ender chest to prevent data
-            // loss
-            DataLockManager dataLockManager = plugin.getDataLockManager();
-
-            // Lock to prevent double-save race conditions
-            if (dataLockManager.tryLock(player.getUniqueId())) {
-                debug.log("Player " + player.getName() + " closed their ender chest. Saving data...");
-
-                // Save asynchronously without blocking - let CompletableFuture handle it
-                manager.saveEnderChest(player.getUniqueId(), player.getName(), closedInventory)
-                        .whenComplete((result, ex) -> {
-                            if (ex != null) {
-                                plugin.getLogger().severe("Failed to save data for " + player.getName() +
-                                        " after closing inventory: " + ex.getMessage());
-                            } else {
-                                debug.log("Data for " + player.getName() + " saved after closing inventory.");
-                            }
-                            dataLockManager.unlock(player.getUniqueId());
-                        });
+            // loss. The save is queued behind any other operation on the player's data.
+            BitSet changedSlots = manager.getDirtySlots(player.getUniqueId());
+            if (!manager.clearDirty(player.getUniqueId())) {
+                manager.recordCleanSkip();
+                debug.log("Player " + player.getName() + " closed their ender chest without changes. Skipping save.");
+                return;
             }
+            debug.log("Player " + player.getName() + " closed their ender chest. Saving data...");
+
+            // Save asynchronously without blocking - let CompletableFuture handle it
+            manager.saveEnderChest(player.getUniqueId(), player.getName(), closedInventory, changedSlots)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            manager.markDirty(player.getUniqueId());
+                            plugin.getLogger().severe("Failed to save data for " + player.getName() +
+                                    " after closing inventory: " + ex.getMessage());
+                        } else {
+                            manager.recordDirtySave();
+                            debug.log("Data for " + player.getName() + " saved after closing inventory.");
+                        }
+                    });
         }
     }
 }
\ No newline at end of file
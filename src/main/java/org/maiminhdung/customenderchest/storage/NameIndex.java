@@ -0,0 +1,237 @@
+package org.maiminhdung.customenderchest.storage;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Process-wide lowercase name -> UUID index, so offline players can be resolved without
+ * touching the database or player files.
+ * <p>
+ * Warmed once at startup from {@link StorageInterface#scanPlayerNames} and kept current by
+ * the storage backends on every save and delete. Each player takes one slot in a pair of
+ * open-addressed tables: the UUID as two primitive longs plus an interned name, and an int
+ * from the name's hash slot back to the player, 24 bytes per slot. The tables are kept at four
+ * to eight times the player count, so with the name string a player costs about 150 to 250
+ * bytes and 500k players take around 75 MB.
+ */
+public class NameIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Marks a freed player slot, compared by identity
+    private static final String REMOVED = new String("");
+    // Marks a freed name slot
+    private static final int NAME_REMOVED = -1;
+
+    private long[] most;
+    private long[] least;
+    private String[] names;
+    // Player slot + 1 for each name, 0 is an empty slot
+    private int[] byName;
+    private int mask;
+    private int size;
+    private int usedPlayerSlots;
+    private int usedNameSlots;
+
+    private volatile boolean enabled = false;
+    private volatile boolean ready = false;
+
+    public NameIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Start accepting entries. Indexes that are never enabled (migration storages) ignore every update.
+     */
+    public void enable() {
+        enabled = true;
+    }
+
+    // Called once the startup scan is complete, from then on a miss means the player has no data.
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Record the current name of a player after a save. A player who held the same name before
+     * is dropped, the name now belongs to this UUID.
+     */
+    public synchronized void put(UUID playerUUID, String playerName) {
+        if (enabled && playerName != null) {
+            insert(playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits(), normalize(playerName), true);
+        }
+    }
+
+    /**
+     * Add an entry from the startup scan. Anything a save recorded meanwhile is newer and wins.
+     */
+    public synchronized void warm(UUID playerUUID, String playerName) {
+        if (enabled && playerName != null) {
+            insert(playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits(), normalize(playerName), false);
+        }
+    }
+
+    public synchronized void remove(UUID playerUUID) {
+        int slot = findPlayer(playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits());
+        if (slot >= 0) {
+            unlinkName(names[slot], slot);
+            names[slot] = REMOVED;
+            size--;
+        }
+    }
+
+    /**
+     * @return The UUID last saved under this name (case-insensitive), or null
+     */
+    public synchronized UUID get(String playerName) {
+        int slot = findName(normalize(playerName));
+        return slot >= 0 ? new UUID(most[slot], least[slot]) : null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static String normalize(String playerName) {
+        return playerName.toLowerCase(Locale.ROOT).intern();
+    }
+
+    private void insert(long msb, long lsb, String name, boolean replace) {
+        if ((Math.max(usedPlayerSlots, usedNameSlots) + 1) * 2 > names.length) {
+            rehash();
+        }
+        int slot = findPlayer(msb, lsb);
+        if (slot >= 0) {
+            if (!replace || names[slot].equals(name)) {
+                return;
+            }
+            unlinkName(names[slot], slot);
+            names[slot] = name;
+        } else {
+            if (!replace && findName(name) >= 0) {
+                return;
+            }
+            slot = freePlayerSlot(msb, lsb);
+            if (names[slot] == null) {
+                usedPlayerSlots++;
+            }
+            most[slot] = msb;
+            least[slot] = lsb;
+            names[slot] = name;
+            size++;
+        }
+        linkName(name, slot);
+    }
+
+    private int findPlayer(long msb, long lsb) {
+        for (int i = mix(msb ^ lsb) & mask; ; i = (i + 1) & mask) {
+            String name = names[i];
+            if (name == null) {
+                return -1;
+            }
+            if (name != REMOVED && most[i] == msb && least[i] == lsb) {
+                return i;
+            }
+        }
+    }
+
+    private int freePlayerSlot(long msb, long lsb) {
+        int i = mix(msb ^ lsb) & mask;
+        while (names[i] != null && names[i] != REMOVED) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // Player slot holding this name, or -1
+    private int findName(String name) {
+        for (int i = mix(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int ref = byName[i];
+            if (ref == 0) {
+                return -1;
+            }
+            if (ref > 0 && names[ref - 1].equals(name)) {
+                return ref - 1;
+            }
+        }
+    }
+
+    private void linkName(String name, int playerSlot) {
+        int free = -1;
+        int i = mix(name.hashCode()) & mask;
+        for (; byName[i] != 0; i = (i + 1) & mask) {
+            int ref = byName[i];
+            if (ref == NAME_REMOVED) {
+                if (free < 0) {
+                    free = i;
+                }
+            } else if (names[ref - 1].equals(name)) {
+                // Someone else had this name before, their entry is stale now
+                if (ref - 1 != playerSlot) {
+                    names[ref - 1] = REMOVED;
+                    size--;
+                }
+                byName[i] = playerSlot + 1;
+                return;
+            }
+        }
+        if (free < 0) {
+            free = i;
+            usedNameSlots++;
+        }
+        byName[free] = playerSlot + 1;
+    }
+
+    private void unlinkName(String name, int playerSlot) {
+        for (int i = mix(name.hashCode()) & mask; byName[i] != 0; i = (i + 1) & mask) {
+            if (byName[i] == playerSlot + 1) {
+                byName[i] = NAME_REMOVED;
+                return;
+            }
+        }
+    }
+
+    // Grow if needed and drop freed slots by reinserting every live entry
+    private void rehash() {
+        long[] oldMost = most;
+        long[] oldLeast = least;
+        String[] oldNames = names;
+
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < (size + 1) * 4) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+        for (int i = 0; i < oldNames.length; i++) {
+            String name = oldNames[i];
+            if (name != null && name != REMOVED) {
+                int slot = freePlayerSlot(oldMost[i], oldLeast[i]);
+                most[slot] = oldMost[i];
+                least[slot] = oldLeast[i];
+                names[slot] = name;
+                usedPlayerSlots++;
+                size++;
+                linkName(name, slot);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        most = new long[capacity];
+        least = new long[capacity];
+        names = new String[capacity];
+        byName = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        usedPlayerSlots = 0;
+        usedNameSlots = 0;
+    }
+
+    private static int mix(long hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,443 @@
+package org.maiminhdung.customenderchest.storage;
+
+import org.bukkit.inventory.ItemStack;
+import org.maiminhdung.customenderchest.EnderChest;
+import org.maiminhdung.customenderchest.data.ItemSerializer;
+import org.maiminhdung.customenderchest.data.PayloadCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Second cache tier in front of the storage, behind the live {@code Inventory} cache of online players.
+ * <p>
+ * Keeps the chest and overflow of recently loaded and saved players as compressed payloads, so a
+ * player who reconnects or an admin opening an offline chest is served from memory. The tier is
+ * bounded by the total size of the payloads and drops the least recently used player first.
+ * <p>
+ * A write through this storage drops the player's entry and puts the new contents back once the
+ * write is durable. A load only fills the cache if no write for that player started while it ran.
+ * Data changed behind the storage's back (a migration, a conversion) must call {@link #invalidateAll()}.
+ */
+public class RecentChestCache implements StorageInterface {
+
+    // Rough size of the entry object, map node and name on top of the payloads
+    private static final int ENTRY_OVERHEAD = 128;
+    // A load slower than this may have raced a write whose mark was already pruned
+    private static final long MAX_LOAD_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long WRITE_MARK_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final EnderChest plugin;
+    private final StorageInterface delegate;
+    private final Executor executor;
+    private final long maxBytes;
+
+    // Access ordered, guarded by this
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // When the latest write of each player started, guarded by this
+    private final Map<UUID, Long> writeMarks = new HashMap<>();
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    public RecentChestCache(EnderChest plugin, StorageInterface delegate, Executor executor, long maxBytes) {
+        this.plugin = plugin;
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+
+    /**
+     * Chest and overflow of one player, each as written by {@link PayloadCodec#encode}.
+     * Overflow is null if the player has none.
+     */
+    private static final class Entry {
+        private final String playerName;
+        private final int size;
+        private final byte[] chest;
+        private final byte[] overflow;
+
+        private Entry(String playerName, int size, byte[] chest, byte[] overflow) {
+            this.playerName = playerName;
+            this.size = size;
+            this.chest = chest;
+            this.overflow = overflow;
+        }
+
+        private long weight() {
+            return ENTRY_OVERHEAD + chest.length + (overflow != null ? overflow.length : 0);
+        }
+    }
+
+    // Builds the entry after a write from the one cached before it, null if it cannot be built
+    @FunctionalInterface
+    private interface EntryUpdate {
+        Entry apply(Entry before) throws IOException;
+    }
+
+    private static byte[] encode(ItemStack[] items) throws IOException {
+        return PayloadCodec.encode(ItemSerializer.toBytes(items), PayloadCodec.DEFLATE, 0);
+    }
+
+    // Copy the items now, a live inventory keeps changing until the write is done
+    private static ItemStack[] snapshot(ItemStack[] items) {
+        ItemStack[] copy = new ItemStack[items.length];
+        for (int i = 0; i < items.length; i++) {
+            copy[i] = items[i] != null ? items[i].clone() : null;
+        }
+        return copy;
+    }
+
+    private synchronized Entry lookup(UUID playerUUID) {
+        Entry entry = entries.get(playerUUID);
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    private synchronized void put(UUID playerUUID, Entry entry) {
+        Entry previous = entries.put(playerUUID, entry);
+        if (previous != null) {
+            totalBytes -= previous.weight();
+        }
+        totalBytes += entry.weight();
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().weight();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private synchronized Entry remove(UUID playerUUID) {
+        Entry entry = entries.remove(playerUUID);
+        if (entry != null) {
+            totalBytes -= entry.weight();
+        }
+        return entry;
+    }
+
+    // Drop the player's entry and remember when this write started. Returns the dropped entry.
+    private synchronized Entry beginWrite(UUID playerUUID, long mark) {
+        if (writeMarks.size() > 1024) {
+            writeMarks.values().removeIf(started -> mark - started > WRITE_MARK_NANOS);
+        }
+        writeMarks.put(playerUUID, mark);
+        return remove(playerUUID);
+    }
+
+    // Cache the written contents, unless a newer write started meanwhile and will do it instead
+    private synchronized void finishWrite(UUID playerUUID, long mark, Entry entry) {
+        Long latest = writeMarks.get(playerUUID);
+        if (latest == null || latest != mark) {
+            return;
+        }
+        writeMarks.remove(playerUUID);
+        if (entry != null) {
+            put(playerUUID, entry);
+        } else {
+            // A load that overlapped the write may have cached the old contents
+            remove(playerUUID);
+        }
+    }
+
+    // Cache a loaded state if no write for the player started after the load did
+    private void admit(UUID playerUUID, long loadStart, PlayerState state) {
+        // An empty array means the stored data could not be read, leave it to the storage
+        if (state == null || state.items.length == 0 || System.nanoTime() - loadStart > MAX_LOAD_NANOS) {
+            return;
+        }
+        Entry entry;
+        try {
+            entry = new Entry(state.playerName, state.size, encode(state.items),
+                    state.overflow != null ? encode(state.overflow) : null);
+        } catch (IOException e) {
+            plugin.getDebugLogger().log("Could not cache loaded chest of " + playerUUID + ": " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            Long mark = writeMarks.get(playerUUID);
+            if (mark == null || mark - loadStart < 0) {
+                put(playerUUID, entry);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> write(UUID playerUUID, Supplier<CompletableFuture<Void>> start,
+            EntryUpdate update) {
+        long mark = System.nanoTime();
+        Entry before = beginWrite(playerUUID, mark);
+        CompletableFuture<Void> written = start.get();
+        // Serializing the new contents stays off the caller's thread
+        written.whenCompleteAsync((v, ex) -> finishWrite(playerUUID, mark,
+                ex == null ? build(playerUUID, update, before) : null), executor);
+        return written;
+    }
+
+    private Entry build(UUID playerUUID, EntryUpdate update, Entry before) {
+        try {
+            return update.apply(before);
+        } catch (IOException e) {
+            plugin.getDebugLogger().log("Could not cache saved chest of " + playerUUID + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The overflow is only known if the player was cached before the write
+    private static EntryUpdate chestUpdate(String playerName, int size, ItemStack[] items) {
+        ItemStack[] copy = snapshot(items);
+        return before -> before == null || copy.length == 0 ? null
+                : new Entry(playerName, size, encode(copy), before.overflow);
+    }
+
+    private PlayerState decode(Entry entry) {
+        try {
+            return new PlayerState(entry.playerName, entry.size, ItemSerializer.fromBytes(entry.chest),
+                    entry.overflow != null ? ItemSerializer.fromBytes(entry.overflow) : null);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public CompletableFuture<PlayerState> loadPlayerState(UUID playerUUID) {
+        Entry entry = lookup(playerUUID);
+        if (entry != null) {
+            return CompletableFuture.supplyAsync(() -> decode(entry), executor);
+        }
+        long start = System.nanoTime();
+        return delegate.loadPlayerState(playerUUID).thenApply(state -> {
+            admit(playerUUID, start, state);
+            return state;
+        });
+    }
+
+    @Override
+    public CompletableFuture<ItemStack[]> loadEnderChest(UUID playerUUID) {
+        Entry entry = lookup(playerUUID);
+        if (entry != null) {
+            return CompletableFuture.supplyAsync(() -> decode(entry).items, executor);
+        }
+        return delegate.loadEnderChest(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<Integer> loadEnderChestSize(UUID playerUUID) {
+        Entry entry = lookup(playerUUID);
+        return entry != null ? CompletableFuture.completedFuture(entry.size) : delegate.loadEnderChestSize(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<String> getPlayerName(UUID playerUUID) {
+        Entry entry = lookup(playerUUID);
+        return entry != null ? CompletableFuture.completedFuture(entry.playerName) : delegate.getPlayerName(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hasData(UUID playerUUID) {
+        Entry entry = lookup(playerUUID);
+        return entry != null ? CompletableFuture.completedFuture(true) : delegate.hasData(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<ItemStack[]> loadOverflowItems(UUID playerUUID) {
+        Entry entry = lookup(playerUUID);
+        if (entry != null) {
+            return CompletableFuture.supplyAsync(() -> decode(entry).overflow, executor);
+        }
+        return delegate.loadOverflowItems(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hasOverflowItems(UUID playerUUID) {
+        Entry entry = lookup(playerUUID);
+        return entry != null ? CompletableFuture.completedFuture(entry.overflow != null)
+                : delegate.hasOverflowItems(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveEnderChest(UUID playerUUID, String playerName, int size, ItemStack[] items) {
+        return write(playerUUID, () -> delegate.saveEnderChest(playerUUID, playerName, size, items),
+                chestUpdate(playerName, size, items));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveEnderChestSlots(UUID playerUUID, String playerName, int size, ItemStack[] items,
+            BitSet changedSlots) {
+        return write(playerUUID, () -> delegate.saveEnderChestSlots(playerUUID, playerName, size, items, changedSlots),
+                chestUpdate(playerName, size, items));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveEnderChestBatch(Collection<ChestSnapshot> snapshots) {
+        long mark = System.nanoTime();
+        Map<UUID, EntryUpdate> updates = new HashMap<>();
+        Map<UUID, Entry> before = new HashMap<>();
+        for (ChestSnapshot s : snapshots) {
+            updates.put(s.playerUUID, chestUpdate(s.playerName, s.size, s.items));
+            Entry entry = beginWrite(s.playerUUID, mark);
+            if (entry != null) {
+                before.put(s.playerUUID, entry);
+            }
+        }
+        CompletableFuture<Void> written = delegate.saveEnderChestBatch(snapshots);
+        written.whenCompleteAsync((v, ex) -> updates.forEach((uuid, update) -> finishWrite(uuid, mark,
+                ex == null ? build(uuid, update, before.get(uuid)) : null)), executor);
+        return written;
+    }
+
+    @Override
+    public CompletableFuture<Void> saveRawPlayerData(Collection<RawPlayerData> batch) {
+        long mark = System.nanoTime();
+        List<UUID> players = new ArrayList<>(batch.size());
+        for (RawPlayerData data : batch) {
+            beginWrite(data.playerUUID, mark);
+            players.add(data.playerUUID);
+        }
+        CompletableFuture<Void> written = delegate.saveRawPlayerData(batch);
+        // Next load caches them again
+        written.whenComplete((v, ex) -> players.forEach(uuid -> finishWrite(uuid, mark, null)));
+        return written;
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteEnderChest(UUID playerUUID) {
+        return write(playerUUID, () -> delegate.deleteEnderChest(playerUUID), before -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOverflowItems(UUID playerUUID, ItemStack[] items) {
+        ItemStack[] copy = items != null ? snapshot(items) : null;
+        return write(playerUUID, () -> delegate.saveOverflowItems(playerUUID, items),
+                before -> before == null || copy == null || copy.length == 0 ? null
+                        : new Entry(before.playerName, before.size, before.chest, encode(copy)));
+    }
+
+    @Override
+    public CompletableFuture<Void> clearOverflowItems(UUID playerUUID) {
+        return write(playerUUID, () -> delegate.clearOverflowItems(playerUUID),
+                before -> before == null ? null : new Entry(before.playerName, before.size, before.chest, null));
+    }
+
+    @Override
+    public CompletableFuture<RawPlayerData> loadRawPlayerData(UUID playerUUID) {
+        return delegate.loadRawPlayerData(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<ChestMeta> loadChestMeta(UUID playerUUID) {
+        Entry entry = lookup(playerUUID);
+        if (entry != null) {
+            // Last seen, item count and hash are not kept, the meta allows them to be unknown
+            return CompletableFuture.completedFuture(
+                    new ChestMeta(entry.playerName, entry.size, 0, -1, entry.overflow != null, 0));
+        }
+        return delegate.loadChestMeta(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<UUID> findUUIDByName(String playerName) {
+        return delegate.findUUIDByName(playerName);
+    }
+
+    @Override
+    public CompletableFuture<Integer> scanPlayerNames(BiConsumer<UUID, String> consumer) {
+        return delegate.scanPlayerNames(consumer);
+    }
+
+    @Override
+    public CompletableFuture<StorageStats> getStorageStats() {
+        return delegate.getStorageStats();
+    }
+
+    @Override
+    public CompletableFuture<Integer> scanPlayers(Consumer<PlayerDataInfo> consumer, boolean verify) {
+        return delegate.scanPlayers(consumer, verify);
+    }
+
+    @Override
+    public CompletableFuture<Integer> compactSlotDeltas() {
+        return delegate.compactSlotDeltas();
+    }
+
+    @Override
+    public CompletableFuture<Void> flush(UUID playerUUID) {
+        return delegate.flush(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<Void> flushAll() {
+        return delegate.flushAll();
+    }
+
+    // Forget a player, the next load reads the storage again
+    public void invalidate(UUID playerUUID) {
+        remove(playerUUID);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public StorageInterface getDelegate() {
+        return delegate;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /** Returns the share of lookups answered from this tier, between 0 and 1. */
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : hits.get() / (double) total;
+    }
+}
@@ -0,0 +1,82 @@
+package org.maiminhdung.customenderchest.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Remembers a fingerprint of the last payload each storage backend persisted per player,
+ * so a save with identical content can skip the database or file write entirely.
+ * <p>
+ * Entries are dropped whenever the stored row is loaded or changed outside a normal save,
+ * because another server or a background rewrite may have replaced the data.
+ */
+public class SaveFingerprintCache {
+
+    private final Map<UUID, Long> lastPersisted = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong(0);
+    private final AtomicLong skips = new AtomicLong(0);
+
+    /**
+     * Build a 64-bit fingerprint of a save payload.
+     * CRC32 and CRC32C use different polynomials, so combining them keeps collisions negligible.
+     */
+    public static long fingerprint(String playerName, int size, byte[] payload) {
+        CRC32 crc = new CRC32();
+        CRC32C crcC = new CRC32C();
+        byte[] header = ((playerName != null ? playerName : "") + ":" + size).getBytes(StandardCharsets.UTF_8);
+        crc.update(header);
+        crcC.update(header);
+        if (payload != null) {
+            crc.update(payload);
+            crcC.update(payload);
+        }
+        return (crc.getValue() << 32) | crcC.getValue();
+    }
+
+    public static long fingerprint(String playerName, int size, String payload) {
+        return fingerprint(playerName, size, payload != null ? payload.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    /**
+     * Check if the payload matches the last one persisted for this player.
+     * A match is counted as a skipped write.
+     */
+    public boolean isUnchanged(UUID playerUUID, long fingerprint) {
+        Long last = lastPersisted.get(playerUUID);
+        if (last != null && last == fingerprint) {
+            skips.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    // Remember the payload that was just written successfully.
+    public void recordWrite(UUID playerUUID, long fingerprint) {
+        lastPersisted.put(playerUUID, fingerprint);
+        writes.incrementAndGet();
+    }
+
+    // Forget the fingerprint so the next save always writes.
+    public void invalidate(UUID playerUUID) {
+        lastPersisted.remove(playerUUID);
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public long getSkips() {
+        return skips.get();
+    }
+
+    /** Returns the share of save requests that were skipped, between 0 and 1. */
+    public double getSkipRatio() {
+        long total = writes.get() + skips.get();
+        return total == 0 ? 0.0 : skips.get() / (double) total;
+    }
+}
@@ -0,0 +1,150 @@
+package org.maiminhdung.customenderchest.storage;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dedicated executor for blocking storage I/O (JDBC and file access).
+ * Keeps database work off the common ForkJoinPool so a join storm cannot starve
+ * the server or other plugins, and records queue depth and wait time for diagnostics.
+ * <p>
+ * Two modes are supported:
+ * <ul>
+ *     <li>{@link Mode#PLATFORM} - a fixed pool of platform threads.</li>
+ *     <li>{@link Mode#VIRTUAL} - one virtual thread per operation, with concurrency bounded by a
+ *     semaphore so no more operations run at once than the connection pool can serve.</li>
+ * </ul>
+ */
+public class StorageExecutor implements Executor {
+
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL;
+
+        public static Mode fromConfig(String value) {
+            return "virtual".equalsIgnoreCase(value) ? VIRTUAL : PLATFORM;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Mode mode;
+    private final int threads;
+    // Only used in virtual mode, bounds how many operations hold a connection or file at once
+    private final Semaphore permits;
+
+    private final AtomicInteger pendingTasks = new AtomicInteger(0);
+    private final AtomicInteger runningTasks = new AtomicInteger(0);
+    private final AtomicLong executedTasks = new AtomicLong(0);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0);
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+
+    public StorageExecutor(String poolName, int threads, Mode mode) {
+        this.threads = Math.max(1, threads);
+        this.mode = mode;
+        if (mode == Mode.VIRTUAL) {
+            this.permits = new Semaphore(this.threads, true);
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(poolName + "-", 1).factory());
+        } else {
+            this.permits = null;
+            AtomicInteger threadIndex = new AtomicInteger(0);
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, poolName + "-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            // Unbounded queue on purpose: saves must never be rejected, only the thread count is bounded
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(this.threads, this.threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long queuedAt = System.nanoTime();
+        pendingTasks.incrementAndGet();
+        executor.execute(() -> {
+            if (permits != null) {
+                permits.acquireUninterruptibly();
+            }
+            pendingTasks.decrementAndGet();
+            runningTasks.incrementAndGet();
+            try {
+                recordWait(System.nanoTime() - queuedAt);
+                task.run();
+            } finally {
+                runningTasks.decrementAndGet();
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    private void recordWait(long nanos) {
+        executedTasks.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Stop accepting tasks and wait for queued I/O to finish.
+     *
+     * @param timeoutMillis Maximum time to wait for running tasks
+     */
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /** Maximum number of storage operations that run at the same time. */
+    public int getThreads() {
+        return threads;
+    }
+
+    /** Number of storage operations waiting for a free thread or permit. */
+    public int getQueueDepth() {
+        return pendingTasks.get();
+    }
+
+    /** Number of storage operations currently running. */
+    public int getActiveCount() {
+        return runningTasks.get();
+    }
+
+    public long getExecutedTasks() {
+        return executedTasks.get();
+    }
+
+    /** Average time an operation waited in the queue before it started, in milliseconds. */
+    public double getAvgWaitMs() {
+        long executed = executedTasks.get();
+        if (executed == 0) return 0.0;
+        return (totalWaitNanos.get() / (double) executed) / 1_000_000.0;
+    }
+
+    /** Longest time an operation waited in the queue, in milliseconds. */
+    public double getMaxWaitMs() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+}
@@ -1,9 +1,18 @@
 package org.maiminhdung.customenderchest.storage;
 
 import org.bukkit.inventory.ItemStack;
+import org.maiminhdung.customenderchest.data.ItemSerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface StorageInterface {
 
@@ -18,12 +27,96 @@ public interface StorageInterface {
     // Save player data
     CompletableFuture<Void> saveEnderChest(UUID playerUUID, String playerName, int size, ItemStack[] items);
 
+    // Save many chests at once (auto-save, shutdown-save). Fails if any chest in the batch failed.
+    default CompletableFuture<Void> saveEnderChestBatch(Collection<ChestSnapshot> snapshots) {
+        CompletableFuture<?>[] futures = snapshots.stream()
+                .map(s -> saveEnderChest(s.playerUUID, s.playerName, s.size, s.items))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures);
+    }
+
+    // Save only the listed slots. Storages without slot deltas write the whole chest.
+    default CompletableFuture<Void> saveEnderChestSlots(UUID playerUUID, String playerName, int size, ItemStack[] items,
+            BitSet changedSlots) {
+        return saveEnderChest(playerUUID, playerName, size, items);
+    }
+
+    // Fold saved slot changes back into the full chest data. Completes with the number of players compacted.
+    default CompletableFuture<Integer> compactSlotDeltas() {
+        return CompletableFuture.completedFuture(0);
+    }
+
     // Delete player data
     CompletableFuture<Void> deleteEnderChest(UUID playerUUID);
 
     // Get player name from UUID (for offline players)
     CompletableFuture<String> getPlayerName(UUID playerUUID);
 
+    // Chest items, saved size, name and overflow items in one read. Returns null if the player has no stored chest.
+    default CompletableFuture<PlayerState> loadPlayerState(UUID playerUUID) {
+        CompletableFuture<ItemStack[]> items = loadEnderChest(playerUUID);
+        CompletableFuture<Integer> size = loadEnderChestSize(playerUUID);
+        CompletableFuture<String> name = getPlayerName(playerUUID);
+        CompletableFuture<ItemStack[]> overflow = loadOverflowItems(playerUUID);
+        return CompletableFuture.allOf(items, size, name, overflow).thenApply(v -> items.join() == null ? null
+                : new PlayerState(name.join(), size.join(), items.join(), overflow.join()));
+    }
+
+    // Name, size and other details of a stored chest without reading its items.
+    // Returns null if the player has no stored chest.
+    default CompletableFuture<ChestMeta> loadChestMeta(UUID playerUUID) {
+        CompletableFuture<String> name = getPlayerName(playerUUID);
+        CompletableFuture<Integer> size = loadEnderChestSize(playerUUID);
+        CompletableFuture<Boolean> overflow = hasOverflowItems(playerUUID);
+        return hasData(playerUUID).thenCompose(exists -> !exists ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.allOf(name, size, overflow).thenApply(v -> new ChestMeta(name.join(),
+                        size.join(), 0, -1, overflow.join(), 0)));
+    }
+
+    // Stored chest and overflow payloads of a player for migration, without deserializing items where the
+    // backend keeps Paper's byte format. Returns null if the player has no stored chest.
+    default CompletableFuture<RawPlayerData> loadRawPlayerData(UUID playerUUID) {
+        return loadPlayerState(playerUUID).thenApply(state -> {
+            if (state == null) {
+                return null;
+            }
+            try {
+                return RawPlayerData.fromItems(playerUUID, state.playerName, state.size, state.items, state.overflow);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    // Write payloads from loadRawPlayerData as they are. Overflow is only written for entries that have it.
+    // Fails if any entry in the batch failed.
+    default CompletableFuture<Void> saveRawPlayerData(Collection<RawPlayerData> batch) {
+        List<ChestSnapshot> snapshots = new ArrayList<>(batch.size());
+        List<RawPlayerData> withOverflow = new ArrayList<>();
+        try {
+            for (RawPlayerData data : batch) {
+                snapshots.add(new ChestSnapshot(data.playerUUID, data.playerName, data.size,
+                        ItemSerializer.fromBytes(data.payload)));
+                if (data.overflow != null) {
+                    withOverflow.add(data);
+                }
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return saveEnderChestBatch(snapshots).thenCompose(v -> {
+            List<CompletableFuture<Void>> overflowSaves = new ArrayList<>(withOverflow.size());
+            for (RawPlayerData data : withOverflow) {
+                try {
+                    overflowSaves.add(saveOverflowItems(data.playerUUID, ItemSerializer.fromBytes(data.overflow)));
+                } catch (IOException e) {
+                    overflowSaves.add(CompletableFuture.failedFuture(e));
+                }
+            }
+            return CompletableFuture.allOf(overflowSaves.toArray(new CompletableFuture<?>[0]));
+        });
+    }
+
     // Check if player has any data in the database
     CompletableFuture<Boolean> hasData(UUID playerUUID);
 
@@ -31,6 +124,12 @@ public interface StorageInterface {
     // Returns null if no player with that name is found
     CompletableFuture<UUID> findUUIDByName(String playerName);
 
+    // Stream every stored UUID and player name, used to warm the name index.
+    // Completes with the number of players passed to the consumer.
+    default CompletableFuture<Integer> scanPlayerNames(BiConsumer<UUID, String> consumer) {
+        return scanPlayers(info -> consumer.accept(info.playerUUID, info.playerName), false);
+    }
+
     // Overflow storage for items beyond permission limit
     CompletableFuture<Void> saveOverflowItems(UUID playerUUID, ItemStack[] items);
 
@@ -43,7 +142,125 @@ public interface StorageInterface {
     // Statistics methods
     CompletableFuture<StorageStats> getStorageStats();
 
-    CompletableFuture<java.util.List<PlayerDataInfo>> getPlayersWithItems();
+    // Stream every stored player to the consumer, one at a time on the storage thread.
+    // Item counts come from stored metadata where the backend has it; with verify every
+    // chest is decoded so corrupted records are reported. Completes with the number of players.
+    CompletableFuture<Integer> scanPlayers(Consumer<PlayerDataInfo> consumer, boolean verify);
+
+    // Write out any queued saves for a player. Completes once they are durable.
+    default CompletableFuture<Void> flush(UUID playerUUID) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Write out every queued save. Completes once they are durable.
+    default CompletableFuture<Void> flushAll() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Release files held by the storage. Called after the storage executor has drained.
+    default void close() {
+    }
+
+    /**
+     * Chest contents captured for a batch save
+     */
+    class ChestSnapshot {
+        public final UUID playerUUID;
+        public final String playerName;
+        public final int size;
+        public final ItemStack[] items;
+
+        public ChestSnapshot(UUID playerUUID, String playerName, int size, ItemStack[] items) {
+            this.playerUUID = playerUUID;
+            this.playerName = playerName;
+            this.size = size;
+            this.items = items;
+        }
+    }
+
+    /**
+     * Everything stored for a player, loaded together on join and admin open
+     */
+    class PlayerState {
+        public final String playerName;
+        public final int size;
+        // Empty if the stored data could not be deserialized
+        public final ItemStack[] items;
+        // Null if the player has no overflow items
+        public final ItemStack[] overflow;
+
+        public PlayerState(String playerName, int size, ItemStack[] items, ItemStack[] overflow) {
+            this.playerName = playerName;
+            this.size = size;
+            this.items = items;
+            this.overflow = overflow;
+        }
+    }
+
+    /**
+     * Stored payloads of a player, copied between storages by the migrator
+     */
+    class RawPlayerData {
+        public final UUID playerUUID;
+        public final String playerName;
+        public final int size;
+        public final int itemCount; // -1 if unknown
+        // Chest items as written by ItemSerializer.toBytes, with or without a payload header
+        public final byte[] payload;
+        // Overflow items in the same format, null if the player has no overflow items
+        public final byte[] overflow;
+        public final int overflowItemCount; // -1 if unknown
+
+        public RawPlayerData(UUID playerUUID, String playerName, int size, int itemCount, byte[] payload,
+                byte[] overflow, int overflowItemCount) {
+            this.playerUUID = playerUUID;
+            this.playerName = playerName;
+            this.size = size;
+            this.itemCount = itemCount;
+            this.payload = payload;
+            this.overflow = overflow;
+            this.overflowItemCount = overflowItemCount;
+        }
+
+        public static RawPlayerData fromItems(UUID playerUUID, String playerName, int size, ItemStack[] items,
+                ItemStack[] overflow) throws IOException {
+            return new RawPlayerData(playerUUID, playerName, size, ItemSerializer.countItems(items),
+                    ItemSerializer.toBytes(items), overflow != null ? ItemSerializer.toBytes(overflow) : null,
+                    ItemSerializer.countItems(overflow));
+        }
+
+        // Stored count, or counted from the payload if the source did not know it
+        public int countChestItems() throws IOException {
+            return itemCount >= 0 ? itemCount : ItemSerializer.countSerializedItems(payload);
+        }
+
+        public int countOverflowItems() throws IOException {
+            return overflowItemCount >= 0 ? overflowItemCount : ItemSerializer.countSerializedItems(overflow);
+        }
+    }
+
+    /**
+     * Chest details that can be read without deserializing items
+     */
+    class ChestMeta {
+        public final String playerName;
+        public final int size;
+        public final long lastSeen; // 0 if unknown
+        public final int itemCount; // -1 if unknown
+        public final boolean hasOverflow;
+        // Save fingerprint of the stored items, see SaveFingerprintCache. 0 if unknown.
+        public final long payloadHash;
+
+        public ChestMeta(String playerName, int size, long lastSeen, int itemCount, boolean hasOverflow,
+                long payloadHash) {
+            this.playerName = playerName;
+            this.size = size;
+            this.lastSeen = lastSeen;
+            this.itemCount = itemCount;
+            this.hasOverflow = hasOverflow;
+            this.payloadHash = payloadHash;
+        }
+    }
 
     /**
      * Statistics data class
@@ -8,23 +8,35 @@ import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.inventory.Inventory;
 import org.maiminhdung.customenderchest.EnderChest;
+import org.maiminhdung.customenderchest.Scheduler;
+import org.maiminhdung.customenderchest.storage.impl.BinaryFileStorage;
 import org.maiminhdung.customenderchest.storage.impl.H2Storage;
 import org.maiminhdung.customenderchest.storage.impl.MySQLStorage;
+import org.maiminhdung.customenderchest.storage.impl.SegmentStorage;
 import org.maiminhdung.customenderchest.storage.impl.YmlStorage;
 
 import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class StorageManager {
 
     private final EnderChest plugin;
     private HikariDataSource dataSource;
     private final StorageInterface storageImplementation;
+    private WriteBehindStorage writeBehind;
+    private RecentChestCache recentCache;
+    private Scheduler.Task slotCompactionTask;
+    private final SaveFingerprintCache saveFingerprints = new SaveFingerprintCache();
+    private final NameIndex nameIndex = new NameIndex();
+    private final StorageExecutor executor;
 
     public StorageManager(EnderChest plugin) {
         this.plugin = plugin;
+        this.executor = createExecutor("CEC-Storage");
         String storageType = plugin.config().getString("storage.type", "yml").toLowerCase();
 
         // Use H2 or MySQL if specified, otherwise default to YML
@@ -36,7 +48,7 @@ public class StorageManager {
                 } else {
                     plugin.getLogger()
                             .severe("MySQL connection failed! Falling back to YML storage as a safe default.");
-                    this.storageImplementation = new YmlStorage(plugin);
+                    this.storageImplementation = new YmlStorage(plugin, this);
                 }
                 break;
             case "h2":
@@ -45,22 +57,72 @@ public class StorageManager {
                     this.storageImplementation = new H2Storage(this);
                 } else {
                     plugin.getLogger().severe("H2 connection failed! Falling back to YML storage as a safe default.");
-                    this.storageImplementation = new YmlStorage(plugin);
+                    this.storageImplementation = new YmlStorage(plugin, this);
                 }
                 break;
+            case "segment":
+                plugin.getLogger().info("Using segment log for data storage.");
+                this.dataSource = null;
+                SegmentStorage segment = new SegmentStorage(plugin, this);
+                if (segment.open()) {
+                    this.storageImplementation = segment;
+                } else {
+                    plugin.getLogger()
+                            .severe("Segment log could not be opened! Falling back to YML storage as a safe default.");
+                    this.storageImplementation = new YmlStorage(plugin, this);
+                }
+                break;
+            case "binary":
+                plugin.getLogger().info("Using binary player files for data storage.");
+                this.dataSource = null;
+                this.storageImplementation = new BinaryFileStorage(plugin, this);
+                break;
             case "yml":
             default:
                 plugin.getLogger().info("Using YML for data storage.");
                 this.dataSource = null;
-                this.storageImplementation = new YmlStorage(plugin);
+                this.storageImplementation = new YmlStorage(plugin, this);
                 break;
         }
 
         this.storageImplementation.init();
+
+        // Only the live storage coalesces saves, migrations write straight through
+        if (plugin.config().getBoolean("storage.write-behind.enabled", true)) {
+            this.writeBehind = new WriteBehindStorage(plugin, this.storageImplementation,
+                    plugin.config().getInt("storage.write-behind.flush-interval-ticks", 40),
+                    plugin.config().getInt("storage.write-behind.max-pending", 256));
+            plugin.getDebugLogger().log("Write-behind save queue enabled.");
+        }
+
+        // A shared MySQL database can be changed by other servers, only cache it when asked to
+        boolean sharedDatabase = this.storageImplementation instanceof MySQLStorage
+                && !plugin.config().getBoolean("storage.recent-cache.mysql", false);
+        if (plugin.config().getBoolean("storage.recent-cache.enabled", true) && !sharedDatabase) {
+            long maxBytes = Math.max(1, plugin.config().getInt("storage.recent-cache.max-size-mb", 32)) * 1024L * 1024L;
+            this.recentCache = new RecentChestCache(plugin,
+                    this.writeBehind != null ? this.writeBehind : this.storageImplementation, executor, maxBytes);
+            plugin.getDebugLogger().log("Recent chest cache enabled (" + maxBytes / (1024 * 1024) + " MB).");
+        }
+
+        warmNameIndex();
+
+        // Slot saves pile up rows, fold them back into the chest data every few minutes
+        if (plugin.config().getBoolean("storage.slot-deltas.enabled", false)) {
+            long interval = Math.max(1, plugin.config().getInt("storage.slot-deltas.compact-interval-minutes", 10))
+                    * 60L * 20L;
+            this.slotCompactionTask = Scheduler.runTaskTimerAsync(() -> getStorage().compactSlotDeltas()
+                    .thenAccept(count -> {
+                        if (count > 0) {
+                            plugin.getDebugLogger().log("Compacted slot changes for " + count + " players.");
+                        }
+                    }), interval, interval);
+        }
     }
 
     public StorageManager(EnderChest plugin, String forceStorageType) {
         this.plugin = plugin;
+        this.executor = createExecutor("CEC-Migration-" + forceStorageType.toLowerCase());
         switch (forceStorageType.toLowerCase()) {
             case "mysql":
                 plugin.getLogger().info("Migration: Initializing MySQL storage.");
@@ -80,11 +142,27 @@ public class StorageManager {
                     this.storageImplementation = null;
                 }
                 break;
+            case "segment":
+                plugin.getLogger().info("Migration: Initializing segment storage.");
+                this.dataSource = null;
+                SegmentStorage segment = new SegmentStorage(plugin, this);
+                if (segment.open()) {
+                    this.storageImplementation = segment;
+                } else {
+                    plugin.getLogger().severe("Migration: Segment log could not be opened!");
+                    this.storageImplementation = null;
+                }
+                break;
+            case "binary":
+                plugin.getLogger().info("Migration: Initializing binary file storage.");
+                this.dataSource = null;
+                this.storageImplementation = new BinaryFileStorage(plugin, this);
+                break;
             case "yml":
             default:
                 plugin.getLogger().info("Migration: Initializing YML storage.");
                 this.dataSource = null;
-                this.storageImplementation = new YmlStorage(plugin);
+                this.storageImplementation = new YmlStorage(plugin, this);
                 break;
         }
         if (this.storageImplementation != null) {
@@ -92,6 +170,21 @@ public class StorageManager {
         }
     }
 
+    /**
+     * Create the executor that runs all blocking storage I/O.
+     * Sized to the connection pool by default so queued work waits here instead of inside Hikari.
+     */
+    private StorageExecutor createExecutor(String poolName) {
+        StorageExecutor.Mode mode = StorageExecutor.Mode.fromConfig(plugin.config().getString("storage.executor", "platform"));
+        int threads = plugin.config().getInt("storage.executor-threads", 0);
+        if (threads <= 0) {
+            threads = plugin.config().getInt("storage.pool-settings.max-pool-size", 10);
+        }
+        plugin.getDebugLogger().log("Storage executor '" + poolName + "' started in " + mode + " mode with "
+                + threads + " concurrent operations.");
+        return new StorageExecutor(poolName, threads, mode);
+    }
+
     private boolean connectMySQL() {
         try {
             HikariConfig config = new HikariConfig();
@@ -103,6 +196,8 @@ public class StorageManager {
             config.addDataSourceProperty("user", plugin.config().getString("storage.mysql.username"));
             config.addDataSourceProperty("password", plugin.config().getString("storage.mysql.password"));
             config.addDataSourceProperty("useSSL", plugin.config().getBoolean("storage.mysql.use-ssl"));
+            // Send batched saves as multi-row statements instead of one round trip per row
+            config.addDataSourceProperty("rewriteBatchedStatements", true);
 
             // Pool settings
             config.setMaximumPoolSize(plugin.config().getInt("storage.pool-settings.max-pool-size", 10));
@@ -154,10 +249,65 @@ public class StorageManager {
         }
     }
 
+    // Fill the name index from storage in the background, lookups use the storage until it is done
+    private void warmNameIndex() {
+        nameIndex.enable();
+        long startTime = System.nanoTime();
+        this.storageImplementation.scanPlayerNames(nameIndex::warm).whenComplete((count, ex) -> {
+            if (ex != null) {
+                plugin.getLogger().warning("Failed to load the player name index, name lookups will query storage: "
+                        + ex.getMessage());
+                return;
+            }
+            nameIndex.markReady();
+            plugin.getDebugLogger().log("Name index loaded " + nameIndex.size() + " players in "
+                    + (System.nanoTime() - startTime) / 1_000_000 + "ms.");
+        });
+    }
+
+    /**
+     * Find the UUID whose chest was last saved under this name (case-insensitive).
+     * Answered from memory once the name index is loaded. On a shared MySQL database a miss still
+     * queries the database, the player may have been saved by another server.
+     *
+     * @return The UUID, or null if no stored chest has this name
+     */
+    public CompletableFuture<UUID> findUUIDByName(String playerName) {
+        if (!nameIndex.isReady()) {
+            return getStorage().findUUIDByName(playerName);
+        }
+        UUID uuid = nameIndex.get(playerName);
+        if (uuid == null && writeBehind != null) {
+            // A first save may still be queued
+            uuid = writeBehind.findQueuedUUID(playerName);
+        }
+        if (uuid == null && storageImplementation instanceof MySQLStorage) {
+            return getStorage().findUUIDByName(playerName);
+        }
+        return CompletableFuture.completedFuture(uuid);
+    }
+
     /**
      * Close connection when turn off.
      */
     public void close() {
+        if (slotCompactionTask != null) {
+            slotCompactionTask.cancel();
+        }
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+            try {
+                writeBehind.flushAll().get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Failed to flush queued saves on close: " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+            }
+        }
+        // Let queued saves finish before the pool goes away
+        executor.shutdown(10000);
+        if (storageImplementation != null) {
+            storageImplementation.close();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             plugin.getLogger().info("Database connection pool closed.");
@@ -178,7 +328,54 @@ public class StorageManager {
      * Use storage currently working.
      */
     public StorageInterface getStorage() {
-        return this.storageImplementation;
+        if (this.recentCache != null) {
+            return this.recentCache;
+        }
+        return this.writeBehind != null ? this.writeBehind : this.storageImplementation;
+    }
+
+    /**
+     * Write-behind save queue, or null if disabled or this manager is used for migration.
+     */
+    public WriteBehindStorage getWriteBehind() {
+        return this.writeBehind;
+    }
+
+    /**
+     * Cache of recently loaded and saved chests, or null if disabled or this manager is used for migration.
+     */
+    public RecentChestCache getRecentCache() {
+        return this.recentCache;
+    }
+
+    /**
+     * Drop every chest held by the recent chest cache, after data was changed outside the live storage.
+     */
+    public void invalidateRecentCache() {
+        if (this.recentCache != null) {
+            this.recentCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Fingerprints of the last persisted payload per player, used to skip unchanged saves.
+     */
+    public SaveFingerprintCache getSaveFingerprints() {
+        return this.saveFingerprints;
+    }
+
+    /**
+     * Lowercase name to UUID lookup for offline players.
+     */
+    public NameIndex getNameIndex() {
+        return this.nameIndex;
+    }
+
+    /**
+     * Executor for blocking storage I/O, shared by every storage implementation.
+     */
+    public StorageExecutor getExecutor() {
+        return this.executor;
     }
 
     public Inventory getVanillaEnderChest(UUID playerUUID) {
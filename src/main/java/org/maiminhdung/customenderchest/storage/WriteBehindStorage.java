@@ -0,0 +1,387 @@
+package org.maiminhdung.customenderchest.storage;
+
+import org.bukkit.inventory.ItemStack;
+import org.maiminhdung.customenderchest.EnderChest;
+import org.maiminhdung.customenderchest.Scheduler;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind queue in front of a storage implementation.
+ * <p>
+ * Chest saves are held in memory per player and written on a short interval, so a player who
+ * opens and closes their chest several times only causes one write. A newer save for the same
+ * player replaces the pending snapshot, and every caller's future completes once the snapshot
+ * that superseded theirs is durable.
+ * <p>
+ * Slot saves coalesce into one save of the union of their slots; any full save in between makes
+ * the queued entry a full save.
+ * <p>
+ * Reads of a player with a pending or in-flight save flush that player first, so loads always
+ * see the latest data. Quit and shutdown call {@link #flush(UUID)} / {@link #flushAll()}.
+ */
+public class WriteBehindStorage implements StorageInterface {
+
+    private final EnderChest plugin;
+    private final StorageInterface delegate;
+    private final int maxPending;
+
+    private final Map<UUID, PendingSave> pending = new ConcurrentHashMap<>();
+    // Writes handed to the delegate and not finished yet, used to keep writes per player in order
+    private final Map<UUID, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicBoolean sizeFlushScheduled = new AtomicBoolean(false);
+    private final Scheduler.Task flushTask;
+
+    private final AtomicLong queuedSaves = new AtomicLong(0);
+    private final AtomicLong coalescedSaves = new AtomicLong(0);
+    private final AtomicLong flushedWrites = new AtomicLong(0);
+
+    public WriteBehindStorage(EnderChest plugin, StorageInterface delegate, long flushIntervalTicks, int maxPending) {
+        this.plugin = plugin;
+        this.delegate = delegate;
+        this.maxPending = Math.max(1, maxPending);
+        long interval = Math.max(1L, flushIntervalTicks);
+        this.flushTask = Scheduler.runTaskTimerAsync(this::flushAll, interval, interval);
+    }
+
+    /**
+     * A chest snapshot waiting to be written. The future is shared by every save it absorbed.
+     * Slots is null for a full save, otherwise the slots changed since the last write.
+     */
+    private static final class PendingSave {
+        private final String playerName;
+        private final int size;
+        private final ItemStack[] items;
+        private final BitSet slots;
+        private final CompletableFuture<Void> result;
+
+        private PendingSave(String playerName, int size, ItemStack[] items, BitSet slots,
+                CompletableFuture<Void> result) {
+            this.playerName = playerName;
+            this.size = size;
+            this.items = items;
+            this.slots = slots;
+            this.result = result;
+        }
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public CompletableFuture<Void> saveEnderChest(UUID playerUUID, String playerName, int size, ItemStack[] items) {
+        return enqueue(playerUUID, playerName, size, items, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveEnderChestSlots(UUID playerUUID, String playerName, int size, ItemStack[] items,
+            BitSet changedSlots) {
+        return enqueue(playerUUID, playerName, size, items, changedSlots == null ? null : (BitSet) changedSlots.clone());
+    }
+
+    private CompletableFuture<Void> enqueue(UUID playerUUID, String playerName, int size, ItemStack[] items,
+            BitSet slots) {
+        // Copy the items now, the live inventory keeps changing until the flush happens
+        ItemStack[] snapshot = new ItemStack[items.length];
+        for (int i = 0; i < items.length; i++) {
+            snapshot[i] = items[i] != null ? items[i].clone() : null;
+        }
+
+        queuedSaves.incrementAndGet();
+        PendingSave save = pending.compute(playerUUID, (uuid, previous) -> {
+            if (previous == null) {
+                return new PendingSave(playerName, size, snapshot, slots, new CompletableFuture<>());
+            }
+            coalescedSaves.incrementAndGet();
+            BitSet merged = null;
+            if (slots != null && previous.slots != null) {
+                merged = slots;
+                merged.or(previous.slots);
+            }
+            return new PendingSave(playerName, size, snapshot, merged, previous.result);
+        });
+
+        if (pending.size() >= maxPending && sizeFlushScheduled.compareAndSet(false, true)) {
+            Scheduler.runTaskAsync(() -> {
+                sizeFlushScheduled.set(false);
+                flushAll();
+            });
+        }
+        return save.result.copy();
+    }
+
+    @Override
+    public CompletableFuture<Void> saveEnderChestBatch(Collection<ChestSnapshot> snapshots) {
+        // Queue each chest, the next flush writes them out as one batch
+        CompletableFuture<?>[] futures = snapshots.stream()
+                .map(s -> saveEnderChest(s.playerUUID, s.playerName, s.size, s.items))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures);
+    }
+
+    @Override
+    public CompletableFuture<Void> flush(UUID playerUUID) {
+        Batch batch = new Batch();
+        if (batch.claim(playerUUID)) {
+            return batch.start();
+        }
+        CompletableFuture<Void> running = inFlight.get(playerUUID);
+        return running != null ? running.copy() : CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> flushAll() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(inFlight.values());
+        Batch batch = new Batch();
+        for (UUID uuid : new ArrayList<>(pending.keySet())) {
+            batch.claim(uuid);
+        }
+        if (!batch.saves.isEmpty()) {
+            plugin.getDebugLogger().log("Write-behind flush: " + batch.saves.size() + " chests.");
+            futures.add(batch.start());
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    // Wait for a player's queued and running writes before a read. A failed write is reported to the
+    // callers of its save, the read still goes ahead with what the storage has.
+    private CompletableFuture<Void> settle(UUID playerUUID) {
+        return flush(playerUUID).exceptionally(ex -> null);
+    }
+
+    private CompletableFuture<Void> settleAll() {
+        return flushAll().exceptionally(ex -> null);
+    }
+
+    /**
+     * Snapshots handed to the delegate in one batch, started after any write still running for the
+     * same players.
+     */
+    private final class Batch {
+        private final Map<UUID, PendingSave> saves = new HashMap<>();
+        private final List<CompletableFuture<Void>> previous = new ArrayList<>();
+        private final CompletableFuture<Void> gate = new CompletableFuture<>();
+        private final CompletableFuture<Void> written = gate.thenCompose(v -> writeSaves());
+
+        /**
+         * Move a player's pending save into this batch. Taking it out of the queue and registering
+         * the write happen in one step, so a concurrent flush always finds one or the other.
+         *
+         * @return false if nothing was queued for the player
+         */
+        private boolean claim(UUID playerUUID) {
+            boolean[] claimed = new boolean[1];
+            pending.computeIfPresent(playerUUID, (uuid, save) -> {
+                saves.put(uuid, save);
+                CompletableFuture<Void> running = inFlight.put(uuid, written);
+                if (running != null) {
+                    previous.add(running);
+                }
+                claimed[0] = true;
+                return null;
+            });
+            return claimed[0];
+        }
+
+        private CompletableFuture<Void> start() {
+            flushedWrites.addAndGet(saves.size());
+            written.whenComplete((v, ex) -> saves.forEach((uuid, save) -> {
+                inFlight.remove(uuid, written);
+                if (ex != null) {
+                    save.result.completeExceptionally(ex);
+                } else {
+                    save.result.complete(null);
+                }
+            }));
+            // Earlier writes only decide the order, their failures belong to their own callers
+            CompletableFuture.allOf(previous.stream()
+                            .map(f -> f.exceptionally(ex -> null))
+                            .toArray(CompletableFuture[]::new))
+                    .whenComplete((v, ex) -> gate.complete(null));
+            return written.copy();
+        }
+
+        private CompletableFuture<Void> writeSaves() {
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            List<ChestSnapshot> snapshots = new ArrayList<>(saves.size());
+            saves.forEach((uuid, save) -> {
+                if (save.slots != null) {
+                    writes.add(delegate.saveEnderChestSlots(uuid, save.playerName, save.size, save.items, save.slots));
+                } else {
+                    snapshots.add(new ChestSnapshot(uuid, save.playerName, save.size, save.items));
+                }
+            });
+            if (snapshots.size() == 1) {
+                ChestSnapshot s = snapshots.get(0);
+                writes.add(delegate.saveEnderChest(s.playerUUID, s.playerName, s.size, s.items));
+            } else if (!snapshots.isEmpty()) {
+                writes.add(delegate.saveEnderChestBatch(snapshots));
+            }
+            return CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new));
+        }
+    }
+
+    @Override
+    public CompletableFuture<ItemStack[]> loadEnderChest(UUID playerUUID) {
+        return settle(playerUUID).thenCompose(v -> delegate.loadEnderChest(playerUUID));
+    }
+
+    @Override
+    public CompletableFuture<PlayerState> loadPlayerState(UUID playerUUID) {
+        return settle(playerUUID).thenCompose(v -> delegate.loadPlayerState(playerUUID));
+    }
+
+    @Override
+    public CompletableFuture<RawPlayerData> loadRawPlayerData(UUID playerUUID) {
+        return settle(playerUUID).thenCompose(v -> delegate.loadRawPlayerData(playerUUID));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveRawPlayerData(Collection<RawPlayerData> batch) {
+        // Queued saves for these players must land first so they cannot overwrite the raw data later
+        CompletableFuture<?>[] flushes = batch.stream()
+                .map(data -> settle(data.playerUUID))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(flushes).thenCompose(v -> delegate.saveRawPlayerData(batch));
+    }
+
+    @Override
+    public CompletableFuture<Integer> loadEnderChestSize(UUID playerUUID) {
+        return settle(playerUUID).thenCompose(v -> delegate.loadEnderChestSize(playerUUID));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteEnderChest(UUID playerUUID) {
+        // The delete supersedes anything still queued for this player
+        PendingSave dropped = pending.remove(playerUUID);
+        return settle(playerUUID)
+                .thenCompose(v -> delegate.deleteEnderChest(playerUUID))
+                .whenComplete((v, ex) -> {
+                    if (dropped != null) {
+                        dropped.result.complete(null);
+                    }
+                });
+    }
+
+    @Override
+    public CompletableFuture<String> getPlayerName(UUID playerUUID) {
+        return settle(playerUUID).thenCompose(v -> delegate.getPlayerName(playerUUID));
+    }
+
+    @Override
+    public CompletableFuture<ChestMeta> loadChestMeta(UUID playerUUID) {
+        return settle(playerUUID).thenCompose(v -> delegate.loadChestMeta(playerUUID));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hasData(UUID playerUUID) {
+        if (pending.containsKey(playerUUID)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return settle(playerUUID).thenCompose(v -> delegate.hasData(playerUUID));
+    }
+
+    @Override
+    public CompletableFuture<UUID> findUUIDByName(String playerName) {
+        UUID queued = findQueuedUUID(playerName);
+        if (queued != null) {
+            return CompletableFuture.completedFuture(queued);
+        }
+        return delegate.findUUIDByName(playerName);
+    }
+
+    /**
+     * Find a player by name among the saves that are not written yet.
+     *
+     * @return The UUID, or null if no queued save has this name
+     */
+    public UUID findQueuedUUID(String playerName) {
+        for (Map.Entry<UUID, PendingSave> entry : pending.entrySet()) {
+            if (playerName.equalsIgnoreCase(entry.getValue().playerName)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Integer> scanPlayerNames(BiConsumer<UUID, String> consumer) {
+        return delegate.scanPlayerNames(consumer);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOverflowItems(UUID playerUUID, ItemStack[] items) {
+        return delegate.saveOverflowItems(playerUUID, items);
+    }
+
+    @Override
+    public CompletableFuture<ItemStack[]> loadOverflowItems(UUID playerUUID) {
+        return delegate.loadOverflowItems(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<Void> clearOverflowItems(UUID playerUUID) {
+        return delegate.clearOverflowItems(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hasOverflowItems(UUID playerUUID) {
+        return delegate.hasOverflowItems(playerUUID);
+    }
+
+    @Override
+    public CompletableFuture<StorageStats> getStorageStats() {
+        return settleAll().thenCompose(v -> delegate.getStorageStats());
+    }
+
+    @Override
+    public CompletableFuture<Integer> scanPlayers(Consumer<PlayerDataInfo> consumer, boolean verify) {
+        return settleAll().thenCompose(v -> delegate.scanPlayers(consumer, verify));
+    }
+
+    @Override
+    public CompletableFuture<Integer> compactSlotDeltas() {
+        return settleAll().thenCompose(v -> delegate.compactSlotDeltas());
+    }
+
+    /**
+     * Stop the flush timer. Pending saves must be flushed by the caller before this.
+     */
+    public void shutdown() {
+        flushTask.cancel();
+    }
+
+    public StorageInterface getDelegate() {
+        return delegate;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getQueuedSaves() {
+        return queuedSaves.get();
+    }
+
+    public long getCoalescedSaves() {
+        return coalescedSaves.get();
+    }
+
+    public long getFlushedWrites() {
+        return flushedWrites.get();
+    }
+}
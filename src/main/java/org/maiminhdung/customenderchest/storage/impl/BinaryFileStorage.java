@@ -0,0 +1,660 @@
+package org.maiminhdung.customenderchest.storage.impl;
+
+import static org.maiminhdung.customenderchest.EnderChest.ERROR_TRACKER;
+
+import org.bukkit.inventory.ItemStack;
+import org.maiminhdung.customenderchest.EnderChest;
+import org.maiminhdung.customenderchest.data.ItemSerializer;
+import org.maiminhdung.customenderchest.storage.SaveFingerprintCache;
+import org.maiminhdung.customenderchest.storage.StorageInterface;
+import org.maiminhdung.customenderchest.storage.StorageManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * One binary file per player, {@code playerdata-bin/<uuid>.cec}.
+ * <p>
+ * Layout: a fixed 96 byte header (magic, version, chest size, item count, save time, name),
+ * a table of {@code (offset, length)} per slot, then Paper's {@code serializeAsBytes} data for
+ * each non-empty slot. Loads map or read the file once and decode every slot from its own
+ * range, with no YAML parsing or Base64. Size, name and item count come from the header alone.
+ * <p>
+ * Overflow items go into a separate {@code <uuid>.overflow} file so chest saves never rewrite them.
+ * Files are replaced with an atomic rename, a reader always sees either the old or the new file.
+ */
+public class BinaryFileStorage implements StorageInterface {
+
+    private static final String CHEST_EXTENSION = ".cec";
+    private static final String OVERFLOW_EXTENSION = ".overflow";
+    private static final int MAGIC = 0x43454342; // "CECB"
+    private static final short FORMAT_VERSION = 1;
+
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_SIZE = 8;
+    private static final int OFF_ITEM_COUNT = 12;
+    private static final int OFF_SAVED_AT = 16;
+    private static final int OFF_NAME_LENGTH = 24;
+    private static final int OFF_NAME = 26;
+    private static final int NAME_CAPACITY = 64;
+    private static final int OFF_SLOT_COUNT = 92;
+    private static final int HEADER_SIZE = 96;
+    private static final int SLOT_ENTRY_SIZE = 8;
+
+    private final File dataFolder;
+    private final StorageManager storageManager;
+    private final Executor executor;
+    // Files at least this large are memory-mapped, smaller ones are cheaper to read in one call
+    private final long mmapThreshold;
+
+    public BinaryFileStorage(EnderChest plugin, StorageManager storageManager) {
+        this.storageManager = storageManager;
+        this.executor = storageManager.getExecutor();
+        this.dataFolder = new File(plugin.getDataFolder(), "playerdata-bin");
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+        // Windows cannot replace a file while a mapping of it is still reachable, so never map there
+        this.mmapThreshold = File.separatorChar == '\\' ? Long.MAX_VALUE
+                : Math.max(0, plugin.config().getInt("storage.binary.mmap-threshold-bytes", 16384));
+    }
+
+    /**
+     * Header fields of a chest file
+     */
+    private static final class Header {
+        final int size;
+        final int itemCount;
+        final long savedAt;
+        final String playerName;
+        final int slotCount;
+
+        Header(int size, int itemCount, long savedAt, String playerName, int slotCount) {
+            this.size = size;
+            this.itemCount = itemCount;
+            this.savedAt = savedAt;
+            this.playerName = playerName;
+            this.slotCount = slotCount;
+        }
+    }
+
+    private File getPlayerFile(UUID playerUUID) {
+        return new File(dataFolder, playerUUID.toString() + CHEST_EXTENSION);
+    }
+
+    private File getOverflowFile(UUID playerUUID) {
+        return new File(dataFolder, playerUUID.toString() + OVERFLOW_EXTENSION);
+    }
+
+    private static UUID uuidOf(File file, String extension) {
+        String name = file.getName();
+        return UUID.fromString(name.substring(0, name.length() - extension.length()));
+    }
+
+    private File[] listChestFiles() {
+        return dataFolder.listFiles((dir, name) -> name.endsWith(CHEST_EXTENSION));
+    }
+
+    // --- File format ---
+
+    private static Header parseHeader(ByteBuffer buffer, long fileSize) throws IOException {
+        if (fileSize < HEADER_SIZE || buffer.getInt(OFF_MAGIC) != MAGIC) {
+            throw new IOException("Not a chest file");
+        }
+        short version = buffer.getShort(OFF_VERSION);
+        if (version > FORMAT_VERSION) {
+            throw new IOException("Chest file was written by a newer version (format " + version + ")");
+        }
+        int nameLength = buffer.getShort(OFF_NAME_LENGTH);
+        if (nameLength < 0 || nameLength > NAME_CAPACITY) {
+            throw new IOException("Invalid name length " + nameLength);
+        }
+        String playerName = null;
+        if (nameLength > 0) {
+            byte[] name = new byte[nameLength];
+            buffer.get(OFF_NAME, name);
+            playerName = new String(name, StandardCharsets.UTF_8);
+        }
+        int slotCount = buffer.getInt(OFF_SLOT_COUNT);
+        if (slotCount < 0 || HEADER_SIZE + (long) slotCount * SLOT_ENTRY_SIZE > fileSize) {
+            throw new IOException("Invalid slot count " + slotCount);
+        }
+        return new Header(buffer.getInt(OFF_SIZE), buffer.getInt(OFF_ITEM_COUNT), buffer.getLong(OFF_SAVED_AT),
+                playerName, slotCount);
+    }
+
+    /**
+     * Read only the fixed header of a chest file.
+     *
+     * @return The header, or null if the file does not exist
+     */
+    private Header readHeader(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+            return parseHeader(buffer, channel.size());
+        }
+    }
+
+    // Map large files, read small ones into the heap in one call
+    private ByteBuffer readWhole(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize >= mmapThreshold) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Chest file too large: " + fileSize + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Keep reading until the whole file is in the buffer
+        }
+        return buffer;
+    }
+
+    /**
+     * Decode every slot of a chest file.
+     *
+     * @return The items, or null if the file does not exist
+     */
+    private ItemStack[] readChest(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = readWhole(channel);
+            return decodeSlots(buffer, parseHeader(buffer, buffer.capacity()));
+        }
+    }
+
+    private static ItemStack[] decodeSlots(ByteBuffer buffer, Header header) throws IOException {
+        byte[][] slots = readSlotBytes(buffer, header);
+        ItemStack[] items = new ItemStack[slots.length];
+        for (int slot = 0; slot < slots.length; slot++) {
+            items[slot] = ItemSerializer.itemFromBytes(slots[slot]);
+        }
+        return items;
+    }
+
+    // Paper's item bytes of every slot, null for empty slots
+    private static byte[][] readSlotBytes(ByteBuffer buffer, Header header) throws IOException {
+        int fileSize = buffer.capacity();
+        byte[][] slots = new byte[header.slotCount][];
+        for (int slot = 0; slot < header.slotCount; slot++) {
+            int entry = HEADER_SIZE + slot * SLOT_ENTRY_SIZE;
+            int offset = buffer.getInt(entry);
+            int length = buffer.getInt(entry + 4);
+            if (length == 0) {
+                continue;
+            }
+            if (offset < HEADER_SIZE || length < 0 || (long) offset + length > fileSize) {
+                throw new IOException("Slot " + slot + " points outside the file");
+            }
+            slots[slot] = new byte[length];
+            buffer.get(offset, slots[slot]);
+        }
+        return slots;
+    }
+
+    /**
+     * Slot table and slot data of a chest file, everything after the header.
+     */
+    private static byte[] encodeBody(ItemStack[] items) {
+        int slotCount = items != null ? items.length : 0;
+        byte[][] slots = new byte[slotCount][];
+        for (int slot = 0; slot < slotCount; slot++) {
+            slots[slot] = ItemSerializer.itemToBytes(items[slot]);
+        }
+        return encodeBody(slots);
+    }
+
+    private static byte[] encodeBody(byte[][] slots) {
+        int slotCount = slots.length;
+        int dataSize = 0;
+        for (byte[] data : slots) {
+            if (data != null) {
+                dataSize += data.length;
+            }
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(slotCount * SLOT_ENTRY_SIZE + dataSize);
+        int offset = HEADER_SIZE + slotCount * SLOT_ENTRY_SIZE;
+        for (byte[] data : slots) {
+            body.putInt(data != null ? offset : 0);
+            body.putInt(data != null ? data.length : 0);
+            if (data != null) {
+                offset += data.length;
+            }
+        }
+        for (byte[] data : slots) {
+            if (data != null) {
+                body.put(data);
+            }
+        }
+        return body.array();
+    }
+
+    private static ByteBuffer encodeHeader(String playerName, int size, int itemCount, int slotCount) {
+        byte[] name = playerName != null ? playerName.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (name.length > NAME_CAPACITY) {
+            // Longer than any Minecraft name, keep the name out rather than storing a cut-off one
+            name = new byte[0];
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(OFF_MAGIC, MAGIC);
+        header.putShort(OFF_VERSION, FORMAT_VERSION);
+        header.putInt(OFF_SIZE, size);
+        header.putInt(OFF_ITEM_COUNT, itemCount);
+        header.putLong(OFF_SAVED_AT, System.currentTimeMillis());
+        header.putShort(OFF_NAME_LENGTH, (short) name.length);
+        header.put(OFF_NAME, name);
+        header.putInt(OFF_SLOT_COUNT, slotCount);
+        return header;
+    }
+
+    // Write to a temporary file next to the target and rename it over the target
+    private void replaceFile(File target, ByteBuffer... buffers) throws IOException {
+        Path tmp = Files.createTempFile(dataFolder.toPath(), target.getName() + "-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                for (ByteBuffer buffer : buffers) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                // The rename must not reach the disk before the data it points to
+                channel.force(true);
+            }
+            Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // --- StorageInterface ---
+
+    @Override
+    public void init() {
+        // Left behind by a save that was interrupted before its rename
+        File[] leftovers = dataFolder.listFiles((dir, name) -> name.endsWith(".tmp"));
+        if (leftovers != null) {
+            for (File file : leftovers) {
+                file.delete();
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<ItemStack[]> loadEnderChest(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            File playerFile = getPlayerFile(playerUUID);
+            if (!playerFile.exists()) {
+                return null;
+            }
+            // The file may have been replaced outside a normal save, so the next save must not be skipped
+            storageManager.getSaveFingerprints().invalidate(playerUUID);
+            try {
+                return readChest(playerFile);
+            } catch (Exception e) {
+                ERROR_TRACKER.trackError(e);
+                throw new CompletionException("Failed to load binary chest file", e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<PlayerState> loadPlayerState(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            File playerFile = getPlayerFile(playerUUID);
+            if (!playerFile.exists()) {
+                return null;
+            }
+            storageManager.getSaveFingerprints().invalidate(playerUUID);
+            try (FileChannel channel = FileChannel.open(playerFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = readWhole(channel);
+                Header header = parseHeader(buffer, buffer.capacity());
+                ItemStack[] items;
+                try {
+                    items = decodeSlots(buffer, header);
+                } catch (Exception e) {
+                    EnderChest.getInstance().getLogger().warning(
+                            "Failed to deserialize enderchest data for player " + playerUUID + ": " + e.getMessage());
+                    items = new ItemStack[0];
+                }
+
+                ItemStack[] overflow = null;
+                File overflowFile = getOverflowFile(playerUUID);
+                if (overflowFile.exists()) {
+                    overflow = ItemSerializer.fromBytes(Files.readAllBytes(overflowFile.toPath()));
+                }
+                return new PlayerState(header.playerName, header.size, items, overflow);
+            } catch (Exception e) {
+                ERROR_TRACKER.trackError(e);
+                throw new CompletionException("Failed to load binary chest file", e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveEnderChest(UUID playerUUID, String playerName, int size, ItemStack[] items) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                byte[] body = encodeBody(items);
+                long fingerprint = SaveFingerprintCache.fingerprint(playerName, size, body);
+                if (storageManager.getSaveFingerprints().isUnchanged(playerUUID, fingerprint)) {
+                    return;
+                }
+                int slotCount = items != null ? items.length : 0;
+                ByteBuffer header = encodeHeader(playerName, size, ItemSerializer.countItems(items), slotCount);
+                replaceFile(getPlayerFile(playerUUID), header, ByteBuffer.wrap(body));
+                storageManager.getSaveFingerprints().recordWrite(playerUUID, fingerprint);
+                storageManager.getNameIndex().put(playerUUID, playerName);
+            } catch (Exception e) {
+                EnderChest.getInstance().getLogger().severe("Failed to save enderchest for " + playerName
+                        + " (" + playerUUID + "): " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new CompletionException("Failed to save binary chest file for " + playerUUID, e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<RawPlayerData> loadRawPlayerData(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            File playerFile = getPlayerFile(playerUUID);
+            if (!playerFile.exists()) {
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(playerFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = readWhole(channel);
+                Header header = parseHeader(buffer, buffer.capacity());
+                // Slot data is Paper's item bytes already, it only needs the array framing around it
+                byte[] payload = ItemSerializer.joinSlots(readSlotBytes(buffer, header));
+
+                File overflowFile = getOverflowFile(playerUUID);
+                byte[] overflow = overflowFile.exists() ? Files.readAllBytes(overflowFile.toPath()) : null;
+                return new RawPlayerData(playerUUID, header.playerName, header.size, header.itemCount, payload,
+                        overflow, -1);
+            } catch (Exception e) {
+                ERROR_TRACKER.trackError(e);
+                throw new CompletionException("Failed to load binary chest file", e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveRawPlayerData(Collection<RawPlayerData> batch) {
+        List<RawPlayerData> entries = new ArrayList<>(batch);
+        return CompletableFuture.runAsync(() -> {
+            for (RawPlayerData data : entries) {
+                try {
+                    byte[][] slots = ItemSerializer.splitSlots(data.payload);
+                    ByteBuffer header = encodeHeader(data.playerName, data.size, data.countChestItems(), slots.length);
+                    storageManager.getSaveFingerprints().invalidate(data.playerUUID);
+                    replaceFile(getPlayerFile(data.playerUUID), header, ByteBuffer.wrap(encodeBody(slots)));
+                    if (data.overflow != null) {
+                        replaceFile(getOverflowFile(data.playerUUID), ByteBuffer.wrap(data.overflow));
+                    }
+                    storageManager.getNameIndex().put(data.playerUUID, data.playerName);
+                } catch (Exception e) {
+                    ERROR_TRACKER.trackError(e);
+                    throw new CompletionException("Failed to save binary chest file for " + data.playerUUID, e);
+                }
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Integer> loadEnderChestSize(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Header header = readHeader(getPlayerFile(playerUUID));
+                return header != null ? header.size : 0;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteEnderChest(UUID playerUUID) {
+        return CompletableFuture.runAsync(() -> {
+            storageManager.getSaveFingerprints().invalidate(playerUUID);
+            storageManager.getNameIndex().remove(playerUUID);
+            getPlayerFile(playerUUID).delete();
+            getOverflowFile(playerUUID).delete();
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<String> getPlayerName(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Header header = readHeader(getPlayerFile(playerUUID));
+                return header != null ? header.playerName : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<ChestMeta> loadChestMeta(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Header header = readHeader(getPlayerFile(playerUUID));
+                if (header == null) {
+                    return null;
+                }
+                return new ChestMeta(header.playerName, header.size, header.savedAt, header.itemCount,
+                        getOverflowFile(playerUUID).exists(), 0);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<UUID> findUUIDByName(String playerName) {
+        return CompletableFuture.supplyAsync(() -> {
+            File[] files = listChestFiles();
+            if (files == null) return null;
+
+            for (File file : files) {
+                try {
+                    Header header = readHeader(file);
+                    if (header != null && playerName.equalsIgnoreCase(header.playerName)) {
+                        return uuidOf(file, CHEST_EXTENSION);
+                    }
+                } catch (Exception e) {
+                    // Skip invalid files
+                }
+            }
+            return null;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Integer> scanPlayerNames(BiConsumer<UUID, String> consumer) {
+        return CompletableFuture.supplyAsync(() -> {
+            int count = 0;
+            File[] files = listChestFiles();
+            if (files == null) return 0;
+            for (File file : files) {
+                try {
+                    Header header = readHeader(file);
+                    if (header != null && header.playerName != null) {
+                        consumer.accept(uuidOf(file, CHEST_EXTENSION), header.playerName);
+                        count++;
+                    }
+                } catch (Exception e) {
+                    // Skip invalid files
+                }
+            }
+            return count;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOverflowItems(UUID playerUUID, ItemStack[] items) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                replaceFile(getOverflowFile(playerUUID), ByteBuffer.wrap(ItemSerializer.toBytes(items)));
+            } catch (Exception e) {
+                EnderChest.getInstance().getLogger().severe("Failed to save overflow items for " + playerUUID);
+                ERROR_TRACKER.trackError(e);
+                throw new CompletionException("Failed to save overflow file for " + playerUUID, e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<ItemStack[]> loadOverflowItems(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            File overflowFile = getOverflowFile(playerUUID);
+            if (!overflowFile.exists()) return null;
+            try {
+                return ItemSerializer.fromBytes(Files.readAllBytes(overflowFile.toPath()));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> clearOverflowItems(UUID playerUUID) {
+        return CompletableFuture.runAsync(() -> getOverflowFile(playerUUID).delete(), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hasOverflowItems(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> getOverflowFile(playerUUID).exists(), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hasData(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> getPlayerFile(playerUUID).exists(), executor);
+    }
+
+    @Override
+    public CompletableFuture<StorageStats> getStorageStats() {
+        return CompletableFuture.supplyAsync(() -> {
+            int totalPlayers = 0;
+            int playersWithItems = 0;
+            int totalItems = 0;
+            int totalOverflowPlayers = 0;
+            int totalOverflowItems = 0;
+            long totalDataSize = 0;
+
+            File[] files = listChestFiles();
+            if (files == null) {
+                return new StorageStats(0, 0, 0, 0, 0, 0);
+            }
+
+            // Item counts are in the header, no slot has to be decoded
+            for (File file : files) {
+                totalPlayers++;
+                totalDataSize += file.length();
+                try {
+                    Header header = readHeader(file);
+                    if (header != null && header.itemCount > 0) {
+                        playersWithItems++;
+                        totalItems += header.itemCount;
+                    }
+                } catch (Exception e) {
+                    EnderChest.getInstance().getLogger().warning(
+                            "[BinaryFileStorage] Failed to read file " + file.getName() + ": " + e.getMessage());
+                    ERROR_TRACKER.trackError(e);
+                }
+            }
+
+            File[] overflowFiles = dataFolder.listFiles((dir, name) -> name.endsWith(OVERFLOW_EXTENSION));
+            if (overflowFiles != null) {
+                for (File file : overflowFiles) {
+                    totalOverflowPlayers++;
+                    totalDataSize += file.length();
+                    try {
+                        byte[] data = Files.readAllBytes(file.toPath());
+                        totalOverflowItems += ItemSerializer.countItems(ItemSerializer.fromBytes(data));
+                    } catch (Exception ignored) {
+                        // Skip corrupted data
+                    }
+                }
+            }
+
+            return new StorageStats(totalPlayers, playersWithItems, totalItems,
+                    totalOverflowPlayers, totalOverflowItems, totalDataSize);
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Integer> scanPlayers(Consumer<PlayerDataInfo> consumer, boolean verify) {
+        return CompletableFuture.supplyAsync(() -> {
+            int count = 0;
+            if (!dataFolder.isDirectory()) {
+                return 0;
+            }
+            // Walk the folder lazily so only one file is held at a time
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dataFolder.toPath(), "*" + CHEST_EXTENSION)) {
+                for (Path path : files) {
+                    File file = path.toFile();
+                    try {
+                        UUID uuid = uuidOf(file, CHEST_EXTENSION);
+                        Header header = readHeader(file);
+                        if (header == null) {
+                            continue;
+                        }
+
+                        // The header already has the count, slots are only decoded to verify them
+                        int itemCount = header.itemCount;
+                        boolean isCorrupted = false;
+                        String errorMessage = null;
+                        if (verify) {
+                            try {
+                                itemCount = ItemSerializer.countItems(readChest(file));
+                            } catch (Exception e) {
+                                isCorrupted = true;
+                                errorMessage = e.getMessage();
+                            }
+                        }
+
+                        consumer.accept(new PlayerDataInfo(uuid, header.playerName != null ? header.playerName : "Unknown",
+                                header.size, itemCount, getOverflowFile(uuid).exists(), isCorrupted, errorMessage));
+                        count++;
+                    } catch (Exception e) {
+                        EnderChest.getInstance().getLogger().warning(
+                                "[BinaryFileStorage] Failed to parse file " + file.getName() + ": " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                EnderChest.getInstance().getLogger().warning("[BinaryFileStorage] Failed to scan players: " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new CompletionException(e);
+            }
+            return count;
+        }, executor);
+    }
+}
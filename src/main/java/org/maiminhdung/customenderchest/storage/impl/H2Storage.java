@@ -4,26 +4,62 @@ import static org.maiminhdung.customenderchest.EnderChest.ERROR_TRACKER;
 
 import org.maiminhdung.customenderchest.EnderChest;
 import org.maiminhdung.customenderchest.data.ItemSerializer;
+import org.maiminhdung.customenderchest.data.PayloadCodec;
+import org.maiminhdung.customenderchest.storage.SaveFingerprintCache;
 import org.maiminhdung.customenderchest.storage.StorageInterface;
 import org.maiminhdung.customenderchest.storage.StorageManager;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class H2Storage implements StorageInterface {
 
     private final StorageManager storageManager;
+    private final Executor executor;
     private final String tableName;
+    private final PayloadCodec codec;
+    private final int compressionThreshold;
+    private final boolean slotDeltas;
+    // True while the slots table may hold rows: loads must apply them and full saves must clear them
+    private volatile boolean slotRowsPresent;
+
+    // Rows per transaction for batch saves
+    private static final int BATCH_CHUNK_SIZE = 100;
+    // Current table layout, stored in the <table>_meta table
+    private static final int SCHEMA_VERSION = 5;
+    // Rows converted per step of the background Base64 -> binary migration
+    private static final int MIGRATION_CHUNK_SIZE = 200;
+    // Meta key set once every row has an item_count
+    private static final String ITEM_COUNTS_KEY = "item_counts_filled";
 
     // Regex pattern for valid SQL table names (alphanumeric and underscores only)
     private static final java.util.regex.Pattern VALID_TABLE_NAME = java.util.regex.Pattern.compile("^[a-zA-Z0-9_]+$");
 
     public H2Storage(StorageManager storageManager) {
         this.storageManager = storageManager;
+        this.executor = storageManager.getExecutor();
+        this.codec = PayloadCodec.fromConfig(
+                EnderChest.getInstance().config().getString("storage.compression.h2", "none"));
+        this.compressionThreshold = EnderChest.getInstance().config().getInt("storage.compression.threshold-bytes", 1024);
+        this.slotDeltas = EnderChest.getInstance().config().getBoolean("storage.slot-deltas.enabled", false);
         String configTableName = EnderChest.getInstance().config().getString("storage.table_name", "custom_enderchests");
         
         // Validate table name to prevent SQL injection
@@ -43,9 +79,14 @@ public class H2Storage implements StorageInterface {
         String sql = "CREATE TABLE IF NOT EXISTS " + tableName + " (" +
                 "player_uuid VARCHAR(36) NOT NULL PRIMARY KEY," +
                 "player_name VARCHAR(16)," +
+                "player_name_lower VARCHAR(16)," +
                 "chest_size INT NOT NULL," +
                 "chest_data LONGTEXT," +
-                "last_seen BIGINT NOT NULL" +
+                "chest_bytes BLOB," +
+                "last_seen BIGINT NOT NULL," +
+                "item_count INT," +
+                "payload_hash BIGINT," +
+                "payload_bytes BIGINT" +
                 ")";
         try (Connection conn = storageManager.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -60,7 +101,9 @@ public class H2Storage implements StorageInterface {
         String overflowSql = "CREATE TABLE IF NOT EXISTS " + tableName + "_overflow (" +
                 "player_uuid VARCHAR(36) NOT NULL PRIMARY KEY," +
                 "overflow_data LONGTEXT," +
-                "created_at BIGINT NOT NULL" +
+                "created_at BIGINT NOT NULL," +
+                "item_count INT," +
+                "payload_bytes BIGINT" +
                 ")";
         try (Connection conn = storageManager.getConnection();
                 PreparedStatement ps = conn.prepareStatement(overflowSql)) {
@@ -71,43 +114,23 @@ public class H2Storage implements StorageInterface {
             e.printStackTrace();
             ERROR_TRACKER.trackError(e);
         }
+        migrateSchema();
+
+        // Per-slot changes, only written when slot deltas are enabled
+        initSlotTable();
     }
 
     @Override
     public CompletableFuture<ItemStack[]> loadEnderChest(UUID playerUUID) {
         return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT chest_data FROM " + tableName + " WHERE player_uuid = ?";
+            String sql = "SELECT chest_bytes, chest_data FROM " + tableName + " WHERE player_uuid = ?";
             try (Connection conn = storageManager.getConnection();
                     PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setQueryTimeout(10); // 10 second query timeout
                 ps.setString(1, playerUUID.toString());
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        String data = rs.getString("chest_data");
-                        try {
-                            ItemStack[] items = ItemSerializer.fromBase64(data);
-
-                            // Auto-save migrated data in new format
-                            if (items != null && items.length > 0) {
-                                try {
-                                    String newData = ItemSerializer.toBase64(items);
-                                    if (!newData.equals(data)) {
-                                        EnderChest.getInstance().getLogger().info(
-                                                "[Migration] Auto-saving migrated data for player " + playerUUID);
-                                        autoSaveMigratedData(playerUUID, newData);
-                                    }
-                                } catch (Exception e) {
-                                    // Ignore save errors, data is already loaded successfully
-                                }
-                            }
-
-                            return items;
-                        } catch (Exception e) {
-                            EnderChest.getInstance().getLogger().warning(
-                                    "Failed to deserialize enderchest data for player " + playerUUID + ": "
-                                            + e.getMessage());
-                            return new ItemStack[0];
-                        }
+                        return decodeChestRow(conn, playerUUID, rs);
                     }
                 }
             } catch (Exception e) {
@@ -129,24 +152,488 @@ public class H2Storage implements StorageInterface {
                 throw new java.util.concurrent.CompletionException(e);
             }
             return null;
-        });
+        }, executor);
+    }
+
+    // Decode the chest columns of the current row, applying slot rows and upgrading old payloads.
+    // Returns an empty array if the stored data cannot be read.
+    private ItemStack[] decodeChestRow(Connection conn, UUID playerUUID, ResultSet rs) {
+        // The row may have been written elsewhere, so the next save must not be skipped
+        storageManager.getSaveFingerprints().invalidate(playerUUID);
+        try {
+            byte[] stored = rs.getBytes("chest_bytes");
+            boolean textRow = stored == null;
+            byte[] data = textRow ? ItemSerializer.decodeBase64(rs.getString("chest_data")) : stored;
+            ItemStack[] items = ItemSerializer.fromBytes(data);
+            if (slotRowsPresent && items != null) {
+                applySlotRows(conn, playerUUID.toString(), items);
+            }
+
+            // Auto-save migrated data in new format. The payload header tells us if
+            // that is needed, so current rows are never serialized again here.
+            if (items != null && items.length > 0 && (textRow || PayloadCodec.needsRewrite(data))) {
+                try {
+                    EnderChest.getInstance().getDebugLogger().log(
+                            "[Migration] Auto-saving migrated data for player " + playerUUID);
+                    autoSaveMigratedData(playerUUID, ItemSerializer.toBytes(items));
+                } catch (Exception e) {
+                    // Ignore save errors, data is already loaded successfully
+                }
+            }
+
+            return items;
+        } catch (Exception e) {
+            EnderChest.getInstance().getLogger().warning(
+                    "Failed to deserialize enderchest data for player " + playerUUID + ": "
+                            + e.getMessage());
+            return new ItemStack[0];
+        }
+    }
+
+    @Override
+    public CompletableFuture<PlayerState> loadPlayerState(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            String sql = "SELECT c.chest_bytes, c.chest_data, c.chest_size, c.player_name, o.overflow_data "
+                    + "FROM " + tableName + " c LEFT JOIN " + tableName + "_overflow o "
+                    + "ON o.player_uuid = c.player_uuid WHERE c.player_uuid = ?";
+            try (Connection conn = storageManager.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setQueryTimeout(10);
+                ps.setString(1, playerUUID.toString());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    ItemStack[] overflow = null;
+                    String overflowData = rs.getString("overflow_data");
+                    if (overflowData != null) {
+                        try {
+                            overflow = ItemSerializer.fromBase64(overflowData);
+                        } catch (Exception e) {
+                            EnderChest.getInstance().getLogger().warning("Failed to load overflow items for " + playerUUID);
+                            overflow = new ItemStack[0];
+                        }
+                    }
+                    return new PlayerState(rs.getString("player_name"), rs.getInt("chest_size"),
+                            decodeChestRow(conn, playerUUID, rs), overflow);
+                }
+            } catch (Exception e) {
+                EnderChest.getInstance().getLogger().severe(
+                        "[H2Storage] Failed to load player state for " + playerUUID + ": " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new java.util.concurrent.CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<RawPlayerData> loadRawPlayerData(UUID playerUUID) {
+        if (slotRowsPresent) {
+            // The stored payload may be older than its slot rows, only the decoded chest is current
+            return StorageInterface.super.loadRawPlayerData(playerUUID);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            String sql = "SELECT c.chest_bytes, c.chest_data, c.chest_size, c.player_name, c.item_count, "
+                    + "o.overflow_data, o.item_count AS overflow_item_count "
+                    + "FROM " + tableName + " c LEFT JOIN " + tableName + "_overflow o "
+                    + "ON o.player_uuid = c.player_uuid WHERE c.player_uuid = ?";
+            try (Connection conn = storageManager.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setQueryTimeout(10);
+                ps.setString(1, playerUUID.toString());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    // Rows saved before item counts were stored report -1, the target counts them itself
+                    int itemCount = rs.getInt("item_count");
+                    if (rs.wasNull()) {
+                        itemCount = -1;
+                    }
+                    byte[] overflow = null;
+                    int overflowItemCount = -1;
+                    String overflowData = rs.getString("overflow_data");
+                    if (overflowData != null) {
+                        overflow = ItemSerializer.decodeBase64(overflowData);
+                        overflowItemCount = rs.getInt("overflow_item_count");
+                        if (rs.wasNull()) {
+                            overflowItemCount = -1;
+                        }
+                    }
+                    return new RawPlayerData(playerUUID, rs.getString("player_name"), rs.getInt("chest_size"),
+                            itemCount, readChestPayload(rs), overflow, overflowItemCount);
+                }
+            } catch (Exception e) {
+                EnderChest.getInstance().getLogger().severe(
+                        "[H2Storage] Failed to load raw data for " + playerUUID + ": " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new java.util.concurrent.CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveRawPlayerData(Collection<RawPlayerData> batch) {
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<RawPlayerData> entries = new ArrayList<>(batch);
+        return CompletableFuture.runAsync(() -> {
+            String sql = "MERGE INTO " + tableName + " (player_uuid, player_name, chest_size, chest_bytes, last_seen, chest_data, " +
+                    "player_name_lower, item_count, payload_hash, payload_bytes) KEY(player_uuid) " +
+                    "VALUES(?, ?, ?, ?, ?, NULL, ?, ?, ?, ?)";
+            String overflowSql = "MERGE INTO " + tableName + "_overflow (player_uuid, overflow_data, created_at, " +
+                    "item_count, payload_bytes) KEY(player_uuid) VALUES(?, ?, ?, ?, ?)";
+            boolean clearSlotRows = slotRowsPresent;
+            try (Connection conn = storageManager.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(sql);
+                    PreparedStatement overflowPs = conn.prepareStatement(overflowSql);
+                    PreparedStatement clearSlots = clearSlotRows ? conn.prepareStatement(
+                            "DELETE FROM " + tableName + "_slots WHERE player_uuid = ?") : null) {
+                ps.setQueryTimeout(30);
+                overflowPs.setQueryTimeout(30);
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try {
+                    long timestamp = System.currentTimeMillis();
+                    Map<UUID, Long> fingerprints = new HashMap<>();
+                    for (RawPlayerData data : entries) {
+                        // The payload is stored as it is, only the fingerprint needs the uncompressed bytes
+                        long fingerprint = SaveFingerprintCache.fingerprint(data.playerName, data.size,
+                                PayloadCodec.decode(data.payload));
+                        ps.setString(1, data.playerUUID.toString());
+                        ps.setString(2, data.playerName);
+                        ps.setInt(3, data.size);
+                        ps.setBytes(4, data.payload);
+                        ps.setLong(5, timestamp);
+                        ps.setString(6, lowerName(data.playerName));
+                        ps.setInt(7, data.countChestItems());
+                        ps.setLong(8, fingerprint);
+                        ps.setLong(9, data.payload.length);
+                        ps.addBatch();
+                        if (data.overflow != null) {
+                            String overflowData = Base64.getEncoder().encodeToString(data.overflow);
+                            overflowPs.setString(1, data.playerUUID.toString());
+                            overflowPs.setString(2, overflowData);
+                            overflowPs.setLong(3, timestamp);
+                            overflowPs.setInt(4, data.countOverflowItems());
+                            overflowPs.setLong(5, overflowData.length());
+                            overflowPs.addBatch();
+                        }
+                        if (clearSlots != null) {
+                            clearSlots.setString(1, data.playerUUID.toString());
+                            clearSlots.addBatch();
+                        }
+                        fingerprints.put(data.playerUUID, fingerprint);
+                    }
+                    ps.executeBatch();
+                    overflowPs.executeBatch();
+                    if (clearSlots != null) {
+                        clearSlots.executeBatch();
+                    }
+                    conn.commit();
+                    fingerprints.forEach(storageManager.getSaveFingerprints()::recordWrite);
+                    entries.forEach(data -> storageManager.getNameIndex().put(data.playerUUID, data.playerName));
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            } catch (Exception e) {
+                EnderChest.getInstance().getLogger().severe(
+                        "[H2Storage] Failed to save raw batch of " + entries.size() + " players: " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new RuntimeException("Failed to save raw player data", e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Bring the table up to the current schema version.
+     * Version 2 stores chest contents as raw bytes in chest_bytes instead of Base64 text in chest_data.
+     */
+    private void migrateSchema() {
+        String metaSql = "CREATE TABLE IF NOT EXISTS " + tableName + "_meta (" +
+                "meta_key VARCHAR(64) NOT NULL PRIMARY KEY," +
+                "meta_value VARCHAR(255)" +
+                ")";
+        boolean countsFilled;
+        try (Connection conn = storageManager.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(metaSql)) {
+                ps.executeUpdate();
+            }
+            int version = readSchemaVersion(conn);
+            if (version < SCHEMA_VERSION) {
+                // Version 2: binary chest data
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS chest_bytes BLOB")) {
+                    ps.executeUpdate();
+                }
+                // Version 3: indexed lowercase name for findUUIDByName
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS player_name_lower VARCHAR(16)")) {
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE " + tableName
+                        + " SET player_name_lower = LOWER(player_name) WHERE player_name_lower IS NULL")) {
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement("CREATE INDEX IF NOT EXISTS idx_" + tableName
+                        + "_name_lower ON " + tableName + " (player_name_lower)")) {
+                    ps.executeUpdate();
+                }
+                // Version 4: chest details readable without the payload, item_count is backfilled below
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS item_count INT")) {
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS payload_hash BIGINT")) {
+                    ps.executeUpdate();
+                }
+                // Version 5: stored payload sizes and overflow counts, so stats never read chest data
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS payload_bytes BIGINT")) {
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "ALTER TABLE " + tableName + "_overflow ADD COLUMN IF NOT EXISTS item_count INT")) {
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "ALTER TABLE " + tableName + "_overflow ADD COLUMN IF NOT EXISTS payload_bytes BIGINT")) {
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE " + tableName + " SET payload_bytes = "
+                        + "COALESCE(OCTET_LENGTH(chest_bytes), LENGTH(chest_data), 0) WHERE payload_bytes IS NULL")) {
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE " + tableName + "_overflow SET "
+                        + "payload_bytes = COALESCE(LENGTH(overflow_data), 0) WHERE payload_bytes IS NULL")) {
+                    ps.executeUpdate();
+                }
+                writeSchemaVersion(conn, SCHEMA_VERSION);
+                EnderChest.getInstance().getLogger().info("[H2Storage] Upgraded table " + tableName
+                        + " from schema version " + version + " to " + SCHEMA_VERSION + ".");
+            }
+            countsFilled = readMetaValue(conn, ITEM_COUNTS_KEY) != null;
+        } catch (Exception e) {
+            EnderChest.getInstance().getLogger().severe("[H2Storage] Failed to upgrade table schema: " + e.getMessage());
+            ERROR_TRACKER.trackError(e);
+            return;
+        }
+
+        // Convert old Base64 rows in the background, loads and saves keep working meanwhile
+        executor.execute(() -> migrateTextPayloads("", 0));
+        // Count the items of rows saved before item_count existed, once
+        if (!countsFilled) {
+            executor.execute(() -> backfillItemCounts(false, "", 0));
+        }
+    }
+
+    // Names are matched case-insensitively through the indexed player_name_lower column
+    private static String lowerName(String playerName) {
+        return playerName != null ? playerName.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private int readSchemaVersion(Connection conn) throws SQLException {
+        String value = readMetaValue(conn, "schema_version");
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return 1;
+    }
+
+    private void writeSchemaVersion(Connection conn, int version) throws SQLException {
+        writeMetaValue(conn, "schema_version", String.valueOf(version));
+    }
+
+    private String readMetaValue(Connection conn, String key) throws SQLException {
+        String sql = "SELECT meta_value FROM " + tableName + "_meta WHERE meta_key = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString("meta_value") : null;
+            }
+        }
+    }
+
+    private void writeMetaValue(Connection conn, String key, String value) throws SQLException {
+        String sql = "MERGE INTO " + tableName + "_meta (meta_key, meta_value) KEY(meta_key) VALUES(?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, key);
+            ps.setString(2, value);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Move one chunk of Base64 rows to the binary column, then queue the next chunk.
+     * Only rows that are still text are updated, so a save that lands first is never overwritten.
+     */
+    private void migrateTextPayloads(String afterUuid, int migratedSoFar) {
+        String selectSql = "SELECT player_uuid, chest_data FROM " + tableName + " " +
+                "WHERE chest_bytes IS NULL AND chest_data IS NOT NULL AND player_uuid > ? " +
+                "ORDER BY player_uuid LIMIT " + MIGRATION_CHUNK_SIZE;
+        String updateSql = "UPDATE " + tableName + " SET chest_bytes = ?, chest_data = NULL, payload_bytes = ? " +
+                "WHERE player_uuid = ? AND chest_bytes IS NULL";
+        String lastUuid = afterUuid;
+        int migrated = migratedSoFar;
+        int rows = 0;
+        try (Connection conn = storageManager.getConnection()) {
+            Map<String, byte[]> chunk = new LinkedHashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+                ps.setQueryTimeout(30);
+                ps.setString(1, afterUuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        lastUuid = rs.getString("player_uuid");
+                        try {
+                            byte[] raw = ItemSerializer.decodeBase64(rs.getString("chest_data"));
+                            chunk.put(lastUuid, PayloadCodec.encode(raw, codec, compressionThreshold));
+                        } catch (IllegalArgumentException | IOException e) {
+                            EnderChest.getInstance().getLogger().warning(
+                                    "[H2Storage] Skipping chest of " + lastUuid + ", stored data is not valid Base64.");
+                        }
+                    }
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+                    for (Map.Entry<String, byte[]> entry : chunk.entrySet()) {
+                        ps.setBytes(1, entry.getValue());
+                        ps.setLong(2, entry.getValue().length);
+                        ps.setString(3, entry.getKey());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    conn.commit();
+                    migrated += chunk.size();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        } catch (Exception e) {
+            EnderChest.getInstance().getLogger().warning("[H2Storage] Binary data migration stopped after "
+                    + migrated + " chests: " + e.getMessage() + ". It will resume on next start.");
+            return;
+        }
+
+        if (rows == MIGRATION_CHUNK_SIZE) {
+            String next = lastUuid;
+            int total = migrated;
+            executor.execute(() -> migrateTextPayloads(next, total));
+        } else if (migrated > 0) {
+            EnderChest.getInstance().getLogger().info("[H2Storage] Converted " + migrated
+                    + " chests from Base64 text to binary storage.");
+        }
+    }
+
+    /**
+     * Count the items of one chunk of rows saved before item_count existed, then queue the next chunk.
+     * The chest table is filled first, then the overflow table. Rows that cannot be decoded stay unset.
+     */
+    private void backfillItemCounts(boolean overflowTable, String afterUuid, int filledSoFar) {
+        String table = overflowTable ? tableName + "_overflow" : tableName;
+        String selectSql = "SELECT player_uuid, " + (overflowTable ? "overflow_data" : "chest_bytes, chest_data")
+                + " FROM " + table + " WHERE item_count IS NULL AND player_uuid > ? "
+                + "ORDER BY player_uuid LIMIT " + MIGRATION_CHUNK_SIZE;
+        String updateSql = "UPDATE " + table + " SET item_count = ? WHERE player_uuid = ? AND item_count IS NULL";
+        String lastUuid = afterUuid;
+        int filled = filledSoFar;
+        int rows = 0;
+        try (Connection conn = storageManager.getConnection()) {
+            Map<String, Integer> chunk = new LinkedHashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+                ps.setQueryTimeout(30);
+                ps.setString(1, afterUuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        lastUuid = rs.getString("player_uuid");
+                        try {
+                            ItemStack[] items = overflowTable ? ItemSerializer.fromBase64(rs.getString("overflow_data"))
+                                    : ItemSerializer.fromBytes(readChestPayload(rs));
+                            chunk.put(lastUuid, ItemSerializer.countItems(items));
+                        } catch (Exception ignored) {
+                            // Corrupted data, /cec stats validate reports it
+                        }
+                    }
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+                    for (Map.Entry<String, Integer> entry : chunk.entrySet()) {
+                        ps.setInt(1, entry.getValue());
+                        ps.setString(2, entry.getKey());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    filled += chunk.size();
+                }
+            }
+
+            if (rows < MIGRATION_CHUNK_SIZE && overflowTable) {
+                writeMetaValue(conn, ITEM_COUNTS_KEY, String.valueOf(System.currentTimeMillis()));
+            }
+        } catch (Exception e) {
+            EnderChest.getInstance().getLogger().warning("[H2Storage] Item count backfill stopped after "
+                    + filled + " rows: " + e.getMessage() + ". It will resume on next start.");
+            return;
+        }
+
+        int total = filled;
+        if (rows == MIGRATION_CHUNK_SIZE) {
+            String next = lastUuid;
+            executor.execute(() -> backfillItemCounts(overflowTable, next, total));
+        } else if (!overflowTable) {
+            executor.execute(() -> backfillItemCounts(true, "", total));
+        } else if (total > 0) {
+            EnderChest.getInstance().getLogger().info("[H2Storage] Stored item counts for " + total
+                    + " rows saved by an older version.");
+        }
+    }
+
+    // Raw chest payload of the current row, from the binary column or the old Base64 column
+    private static byte[] readChestPayload(ResultSet rs) throws SQLException {
+        byte[] bytes = rs.getBytes("chest_bytes");
+        if (bytes != null) {
+            return bytes;
+        }
+        return ItemSerializer.decodeBase64(rs.getString("chest_data"));
     }
 
     /**
      * Auto-save migrated data in background
      */
-    private void autoSaveMigratedData(UUID playerUUID, String newData) {
+    private void autoSaveMigratedData(UUID playerUUID, byte[] newData) {
+        storageManager.getSaveFingerprints().invalidate(playerUUID);
         CompletableFuture.runAsync(() -> {
             try (Connection conn = storageManager.getConnection();
                     PreparedStatement ps = conn.prepareStatement(
-                            "UPDATE " + tableName + " SET chest_data = ? WHERE player_uuid = ?")) {
-                ps.setString(1, newData);
-                ps.setString(2, playerUUID.toString());
+                            "UPDATE " + tableName + " SET chest_bytes = ?, chest_data = NULL, payload_bytes = ? "
+                                    + "WHERE player_uuid = ?")) {
+                byte[] stored = PayloadCodec.encode(newData, codec, compressionThreshold);
+                ps.setBytes(1, stored);
+                ps.setLong(2, stored.length);
+                ps.setString(3, playerUUID.toString());
                 ps.executeUpdate();
             } catch (Exception e) {
                 EnderChest.getInstance().getLogger().warning("Failed to auto-save migrated data: " + e.getMessage());
             }
-        });
+        }, executor);
     }
 
     @Override
@@ -168,25 +655,54 @@ public class H2Storage implements StorageInterface {
                 throw new java.util.concurrent.CompletionException(e);
             }
             return 0;
-        });
+        }, executor);
     }
 
     @Override
     public CompletableFuture<Void> saveEnderChest(UUID playerUUID, String playerName, int size, ItemStack[] items) {
         return CompletableFuture.runAsync(() -> {
-            String sql = "MERGE INTO " + tableName + " (player_uuid, player_name, chest_size, chest_data, last_seen) " +
-                    "KEY(player_uuid) " +
-                    "VALUES(?, ?, ?, ?, ?)";
-            try (Connection conn = storageManager.getConnection();
-                    PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setQueryTimeout(10);
-                String data = ItemSerializer.toBase64(items);
-                ps.setString(1, playerUUID.toString());
-                ps.setString(2, playerName);
-                ps.setInt(3, size);
-                ps.setString(4, data);
-                ps.setLong(5, System.currentTimeMillis());
-                ps.executeUpdate();
+            String sql = "MERGE INTO " + tableName + " (player_uuid, player_name, chest_size, chest_bytes, last_seen, chest_data, " +
+                    "player_name_lower, item_count, payload_hash, payload_bytes) KEY(player_uuid) " +
+                    "VALUES(?, ?, ?, ?, ?, NULL, ?, ?, ?, ?)";
+            try {
+                byte[] data = ItemSerializer.toBytes(items);
+                long fingerprint = SaveFingerprintCache.fingerprint(playerName, size, data);
+                // Return before borrowing a pooled connection when there is nothing to write
+                if (storageManager.getSaveFingerprints().isUnchanged(playerUUID, fingerprint)) {
+                    return;
+                }
+                data = PayloadCodec.encode(data, codec, compressionThreshold);
+                try (Connection conn = storageManager.getConnection();
+                        PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setQueryTimeout(10);
+                    ps.setString(1, playerUUID.toString());
+                    ps.setString(2, playerName);
+                    ps.setInt(3, size);
+                    ps.setBytes(4, data);
+                    ps.setLong(5, System.currentTimeMillis());
+                    ps.setString(6, lowerName(playerName));
+                    ps.setInt(7, ItemSerializer.countItems(items));
+                    ps.setLong(8, fingerprint);
+                    ps.setLong(9, data.length);
+                    if (slotRowsPresent) {
+                        // Replace the chest and drop the slot rows it supersedes in one transaction
+                        conn.setAutoCommit(false);
+                        try {
+                            ps.executeUpdate();
+                            deleteSlotRows(conn, playerUUID.toString());
+                            conn.commit();
+                        } catch (Exception e) {
+                            conn.rollback();
+                            throw e;
+                        } finally {
+                            conn.setAutoCommit(true);
+                        }
+                    } else {
+                        ps.executeUpdate();
+                    }
+                    storageManager.getSaveFingerprints().recordWrite(playerUUID, fingerprint);
+                    storageManager.getNameIndex().put(playerUUID, playerName);
+                }
             } catch (Exception e) {
                 EnderChest.getInstance().getLogger().severe(
                         "[H2Storage] Failed to save enderchest for " + playerName + " (" + playerUUID + "): "
@@ -194,21 +710,313 @@ public class H2Storage implements StorageInterface {
                 ERROR_TRACKER.trackError(e);
                 throw new RuntimeException("Failed to save enderchest data", e);
             }
-        });
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveEnderChestBatch(Collection<ChestSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<ChestSnapshot> batch = new ArrayList<>(snapshots);
+        return CompletableFuture.runAsync(() -> {
+            String sql = "MERGE INTO " + tableName + " (player_uuid, player_name, chest_size, chest_bytes, last_seen, chest_data, " +
+                    "player_name_lower, item_count, payload_hash, payload_bytes) KEY(player_uuid) " +
+                    "VALUES(?, ?, ?, ?, ?, NULL, ?, ?, ?, ?)";
+            boolean clearSlotRows = slotRowsPresent;
+            try (Connection conn = storageManager.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(sql);
+                    PreparedStatement clearSlots = clearSlotRows ? conn.prepareStatement(
+                            "DELETE FROM " + tableName + "_slots WHERE player_uuid = ?") : null) {
+                ps.setQueryTimeout(30);
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try {
+                    long timestamp = System.currentTimeMillis();
+                    Map<UUID, Long> chunkFingerprints = new HashMap<>();
+                    Map<UUID, String> chunkNames = new HashMap<>();
+                    for (ChestSnapshot snapshot : batch) {
+                        byte[] data = ItemSerializer.toBytes(snapshot.items);
+                        long fingerprint = SaveFingerprintCache.fingerprint(snapshot.playerName, snapshot.size, data);
+                        if (storageManager.getSaveFingerprints().isUnchanged(snapshot.playerUUID, fingerprint)) {
+                            continue;
+                        }
+                        data = PayloadCodec.encode(data, codec, compressionThreshold);
+                        ps.setString(1, snapshot.playerUUID.toString());
+                        ps.setString(2, snapshot.playerName);
+                        ps.setInt(3, snapshot.size);
+                        ps.setBytes(4, data);
+                        ps.setLong(5, timestamp);
+                        ps.setString(6, lowerName(snapshot.playerName));
+                        ps.setInt(7, ItemSerializer.countItems(snapshot.items));
+                        ps.setLong(8, fingerprint);
+                        ps.setLong(9, data.length);
+                        ps.addBatch();
+                        if (clearSlots != null) {
+                            // The full chest supersedes any slot rows
+                            clearSlots.setString(1, snapshot.playerUUID.toString());
+                            clearSlots.addBatch();
+                        }
+                        chunkFingerprints.put(snapshot.playerUUID, fingerprint);
+                        chunkNames.put(snapshot.playerUUID, snapshot.playerName);
+                        if (chunkFingerprints.size() >= BATCH_CHUNK_SIZE) {
+                            commitChunk(conn, ps, clearSlots, chunkFingerprints, chunkNames);
+                        }
+                    }
+                    commitChunk(conn, ps, clearSlots, chunkFingerprints, chunkNames);
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            } catch (Exception e) {
+                EnderChest.getInstance().getLogger().severe(
+                        "[H2Storage] Failed to save batch of " + batch.size() + " enderchests: " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new RuntimeException("Failed to save enderchest batch", e);
+            }
+        }, executor);
+    }
+
+    private void initSlotTable() {
+        String sql = "CREATE TABLE IF NOT EXISTS " + tableName + "_slots (" +
+                "player_uuid VARCHAR(36) NOT NULL," +
+                "slot INT NOT NULL," +
+                "item_bytes BLOB," +
+                "updated_at BIGINT NOT NULL," +
+                "PRIMARY KEY (player_uuid, slot)" +
+                ")";
+        try (Connection conn = storageManager.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.executeUpdate();
+            try (PreparedStatement check = conn.prepareStatement(
+                    "SELECT 1 FROM " + tableName + "_slots LIMIT 1");
+                    ResultSet rs = check.executeQuery()) {
+                slotRowsPresent = slotDeltas || rs.next();
+            }
+        } catch (Exception e) {
+            EnderChest.getInstance().getLogger().severe("Failed to initialize slot table!");
+            e.printStackTrace();
+            ERROR_TRACKER.trackError(e);
+            slotRowsPresent = slotDeltas;
+        }
+
+        if (slotRowsPresent && !slotDeltas) {
+            // Slot deltas were turned off, fold the leftover rows into the main table
+            compactSlotDeltas();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> saveEnderChestSlots(UUID playerUUID, String playerName, int size, ItemStack[] items,
+            BitSet changedSlots) {
+        if (!slotDeltas || changedSlots == null) {
+            return saveEnderChest(playerUUID, playerName, size, items);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            String touchSql = "UPDATE " + tableName + " SET player_name = ?, last_seen = ?, player_name_lower = ?, " +
+                    "item_count = ?, payload_hash = NULL WHERE player_uuid = ? AND chest_size = ?";
+            String slotSql = "MERGE INTO " + tableName + "_slots (player_uuid, slot, item_bytes, updated_at) " +
+                    "KEY(player_uuid, slot) VALUES(?, ?, ?, ?)";
+            try (Connection conn = storageManager.getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement touch = conn.prepareStatement(touchSql);
+                        PreparedStatement ps = conn.prepareStatement(slotSql)) {
+                    long timestamp = System.currentTimeMillis();
+                    touch.setString(1, playerName);
+                    touch.setLong(2, timestamp);
+                    touch.setString(3, lowerName(playerName));
+                    touch.setInt(4, ItemSerializer.countItems(items));
+                    touch.setString(5, playerUUID.toString());
+                    touch.setInt(6, size);
+                    if (touch.executeUpdate() == 0) {
+                        // No row yet or the chest was resized, only a full write is valid
+                        conn.rollback();
+                        return false;
+                    }
+                    for (int slot = changedSlots.nextSetBit(0); slot >= 0 && slot < size;
+                            slot = changedSlots.nextSetBit(slot + 1)) {
+                        ps.setString(1, playerUUID.toString());
+                        ps.setInt(2, slot);
+                        ps.setBytes(3, slot < items.length ? ItemSerializer.itemToBytes(items[slot]) : null);
+                        ps.setLong(4, timestamp);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    conn.commit();
+                } catch (Exception e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+                // The stored chest no longer matches the last full-save fingerprint
+                storageManager.getSaveFingerprints().invalidate(playerUUID);
+                storageManager.getNameIndex().put(playerUUID, playerName);
+                return true;
+            } catch (Exception e) {
+                EnderChest.getInstance().getLogger().severe(
+                        "[H2Storage] Failed to save changed slots for " + playerName + " (" + playerUUID + "): "
+                                + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new RuntimeException("Failed to save enderchest slots", e);
+            }
+        }, executor).thenCompose(applied -> applied
+                ? CompletableFuture.completedFuture(null)
+                : saveEnderChest(playerUUID, playerName, size, items));
+    }
+
+    @Override
+    public CompletableFuture<Integer> compactSlotDeltas() {
+        if (!slotRowsPresent) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            List<String> players = new ArrayList<>();
+            try (Connection conn = storageManager.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(
+                            "SELECT DISTINCT player_uuid FROM " + tableName + "_slots")) {
+                ps.setQueryTimeout(30);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        players.add(rs.getString("player_uuid"));
+                    }
+                }
+            } catch (Exception e) {
+                EnderChest.getInstance().getLogger()
+                        .warning("[H2Storage] Failed to list slot changes for compaction: " + e.getMessage());
+                return 0;
+            }
+
+            int compacted = 0;
+            for (String uuid : players) {
+                try {
+                    compactSlotRows(uuid);
+                    compacted++;
+                } catch (Exception e) {
+                    EnderChest.getInstance().getLogger()
+                            .warning("[H2Storage] Failed to compact slot changes for " + uuid + ": " + e.getMessage());
+                }
+            }
+            if (!slotDeltas && compacted == players.size()) {
+                slotRowsPresent = false;
+            }
+            return compacted;
+        }, executor);
+    }
+
+    // Fold one player's slot rows into the main chest data. The row lock makes concurrent saves wait.
+    private void compactSlotRows(String uuid) throws Exception {
+        try (Connection conn = storageManager.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                ItemStack[] items = null;
+                String playerName = null;
+                int size = 0;
+                try (PreparedStatement ps = conn.prepareStatement("SELECT chest_bytes, chest_data, player_name, "
+                        + "chest_size FROM " + tableName + " WHERE player_uuid = ? FOR UPDATE")) {
+                    ps.setString(1, uuid);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            items = ItemSerializer.fromBytes(readChestPayload(rs));
+                            playerName = rs.getString("player_name");
+                            size = rs.getInt("chest_size");
+                        }
+                    }
+                }
+                if (items != null) {
+                    if (items.length == 0) {
+                        // Keep the slot rows rather than folding them into unreadable data
+                        throw new IOException("stored chest data could not be read");
+                    }
+                    applySlotRows(conn, uuid, items);
+                    try (PreparedStatement ps = conn.prepareStatement("UPDATE " + tableName
+                            + " SET chest_bytes = ?, chest_data = NULL, item_count = ?, payload_hash = ?, "
+                            + "payload_bytes = ? WHERE player_uuid = ?")) {
+                        byte[] data = ItemSerializer.toBytes(items);
+                        byte[] stored = PayloadCodec.encode(data, codec, compressionThreshold);
+                        ps.setBytes(1, stored);
+                        ps.setInt(2, ItemSerializer.countItems(items));
+                        ps.setLong(3, SaveFingerprintCache.fingerprint(playerName, size, data));
+                        ps.setLong(4, stored.length);
+                        ps.setString(5, uuid);
+                        ps.executeUpdate();
+                    }
+                }
+                deleteSlotRows(conn, uuid);
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        storageManager.getSaveFingerprints().invalidate(UUID.fromString(uuid));
+    }
+
+    // Apply slot changes saved since the last full write on top of the main chest data
+    private void applySlotRows(Connection conn, String uuid, ItemStack[] items) throws SQLException {
+        String sql = "SELECT slot, item_bytes FROM " + tableName + "_slots WHERE player_uuid = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, uuid);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int slot = rs.getInt("slot");
+                    if (slot >= 0 && slot < items.length) {
+                        items[slot] = ItemSerializer.itemFromBytes(rs.getBytes("item_bytes"));
+                    }
+                }
+            }
+        }
+    }
+
+    private void deleteSlotRows(Connection conn, String uuid) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM " + tableName + "_slots WHERE player_uuid = ?")) {
+            ps.setString(1, uuid);
+            ps.executeUpdate();
+        }
+    }
+
+    // Run and commit the rows queued so far, then remember their fingerprints
+    private void commitChunk(Connection conn, PreparedStatement ps, PreparedStatement clearSlots,
+            Map<UUID, Long> chunkFingerprints, Map<UUID, String> chunkNames) throws SQLException {
+        if (chunkFingerprints.isEmpty()) {
+            return;
+        }
+        ps.executeBatch();
+        if (clearSlots != null) {
+            clearSlots.executeBatch();
+        }
+        conn.commit();
+        // Only committed rows go into the fingerprints and the name index
+        chunkFingerprints.forEach(storageManager.getSaveFingerprints()::recordWrite);
+        chunkNames.forEach(storageManager.getNameIndex()::put);
+        chunkFingerprints.clear();
+        chunkNames.clear();
     }
 
     @Override
     public CompletableFuture<Void> deleteEnderChest(UUID playerUUID) {
         return CompletableFuture.runAsync(() -> {
+            storageManager.getSaveFingerprints().invalidate(playerUUID);
+            storageManager.getNameIndex().remove(playerUUID);
             String sql = "DELETE FROM " + tableName + " WHERE player_uuid = ?";
             try (Connection conn = storageManager.getConnection();
                     PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setString(1, playerUUID.toString());
                 ps.executeUpdate();
+                if (slotRowsPresent) {
+                    deleteSlotRows(conn, playerUUID.toString());
+                }
             } catch (Exception e) {
                 e.printStackTrace();
             }
-        });
+        }, executor);
     }
 
     @Override
@@ -228,18 +1036,18 @@ public class H2Storage implements StorageInterface {
                 e.printStackTrace();
             }
             return null;
-        });
+        }, executor);
     }
 
     @Override
     public CompletableFuture<UUID> findUUIDByName(String playerName) {
         return CompletableFuture.supplyAsync(() -> {
             // Case-insensitive search for player name
-            String sql = "SELECT player_uuid FROM " + tableName + " WHERE LOWER(player_name) = LOWER(?)";
+            String sql = "SELECT player_uuid FROM " + tableName + " WHERE player_name_lower = ?";
             try (Connection conn = storageManager.getConnection();
                     PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setQueryTimeout(10);
-                ps.setString(1, playerName);
+                ps.setString(1, lowerName(playerName));
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
                         return UUID.fromString(rs.getString("player_uuid"));
@@ -250,14 +1058,42 @@ public class H2Storage implements StorageInterface {
                         "[H2Storage] Failed to find UUID by name for " + playerName + ": " + e.getMessage());
             }
             return null;
-        });
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Integer> scanPlayerNames(BiConsumer<UUID, String> consumer) {
+        return CompletableFuture.supplyAsync(() -> {
+            String sql = "SELECT player_uuid, player_name FROM " + tableName + " WHERE player_name IS NOT NULL";
+            int count = 0;
+            try (Connection conn = storageManager.getConnection();
+                    PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(1000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        try {
+                            consumer.accept(UUID.fromString(rs.getString("player_uuid")), rs.getString("player_name"));
+                            count++;
+                        } catch (IllegalArgumentException ignored) {
+                            // Skip rows with an invalid UUID
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                EnderChest.getInstance().getLogger().warning("[H2Storage] Failed to scan player names: " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new java.util.concurrent.CompletionException(e);
+            }
+            return count;
+        }, executor);
     }
 
     @Override
     public CompletableFuture<Void> saveOverflowItems(UUID playerUUID, ItemStack[] items) {
         return CompletableFuture.runAsync(() -> {
-            String sql = "MERGE INTO " + tableName + "_overflow (player_uuid, overflow_data, created_at) " +
-                    "KEY(player_uuid) VALUES(?, ?, ?)";
+            String sql = "MERGE INTO " + tableName + "_overflow (player_uuid, overflow_data, created_at, item_count, " +
+                    "payload_bytes) KEY(player_uuid) VALUES(?, ?, ?, ?, ?)";
             try (Connection conn = storageManager.getConnection();
                     PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setQueryTimeout(10);
@@ -265,13 +1101,15 @@ public class H2Storage implements StorageInterface {
                 ps.setString(1, playerUUID.toString());
                 ps.setString(2, data);
                 ps.setLong(3, System.currentTimeMillis());
+                ps.setInt(4, ItemSerializer.countItems(items));
+                ps.setLong(5, data.length());
                 ps.executeUpdate();
             } catch (Exception e) {
                 EnderChest.getInstance().getLogger().severe("Failed to save overflow items for " + playerUUID);
                 ERROR_TRACKER.trackError(e);
                 throw new RuntimeException("Failed to save overflow items", e);
             }
-        });
+        }, executor);
     }
 
     @Override
@@ -298,7 +1136,7 @@ public class H2Storage implements StorageInterface {
                 throw new java.util.concurrent.CompletionException(e);
             }
             return null;
-        });
+        }, executor);
     }
 
     @Override
@@ -313,7 +1151,7 @@ public class H2Storage implements StorageInterface {
             } catch (Exception e) {
                 e.printStackTrace();
             }
-        });
+        }, executor);
     }
 
     @Override
@@ -333,194 +1171,139 @@ public class H2Storage implements StorageInterface {
                 e.printStackTrace();
             }
             return false;
-        });
+        }, executor);
     }
 
     @Override
-    public CompletableFuture<Boolean> hasData(UUID playerUUID) {
+    public CompletableFuture<ChestMeta> loadChestMeta(UUID playerUUID) {
         return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT 1 FROM " + tableName + " WHERE player_uuid = ? LIMIT 1";
+            String sql = "SELECT c.player_name, c.chest_size, c.last_seen, c.item_count, c.payload_hash, "
+                    + "o.player_uuid AS overflow_uuid FROM " + tableName + " c LEFT JOIN " + tableName + "_overflow o "
+                    + "ON o.player_uuid = c.player_uuid WHERE c.player_uuid = ?";
             try (Connection conn = storageManager.getConnection();
                     PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setQueryTimeout(10);
                 ps.setString(1, playerUUID.toString());
                 try (ResultSet rs = ps.executeQuery()) {
-                    return rs.next();
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    // Rows written before schema version 4 have no count or hash until their next save
+                    int itemCount = rs.getInt("item_count");
+                    if (rs.wasNull()) {
+                        itemCount = -1;
+                    }
+                    return new ChestMeta(rs.getString("player_name"), rs.getInt("chest_size"),
+                            rs.getLong("last_seen"), itemCount, rs.getString("overflow_uuid") != null,
+                            rs.getLong("payload_hash"));
                 }
             } catch (Exception e) {
                 EnderChest.getInstance().getLogger().warning(
-                        "[H2Storage] Failed to check data existence for " + playerUUID + ": " + e.getMessage());
+                        "[H2Storage] Failed to load chest details for " + playerUUID + ": " + e.getMessage());
+                throw new java.util.concurrent.CompletionException(e);
             }
-            return false;
-        });
+        }, executor);
     }
 
     @Override
-    public CompletableFuture<StorageStats> getStorageStats() {
+    public CompletableFuture<Boolean> hasData(UUID playerUUID) {
         return CompletableFuture.supplyAsync(() -> {
-            int totalPlayers = 0;
-            int playersWithItems = 0;
-            int totalItems = 0;
-            int totalOverflowPlayers = 0;
-            int totalOverflowItems = 0;
-            long totalDataSize = 0;
-
-            // Count total players and players with items
-            String countSql = "SELECT COUNT(*) as total, " +
-                    "SUM(CASE WHEN chest_data IS NOT NULL AND chest_data != '' THEN 1 ELSE 0 END) as with_items, " +
-                    "SUM(COALESCE(LENGTH(chest_data), 0)) as data_size " +
-                    "FROM " + tableName;
-            try (Connection conn = storageManager.getConnection();
-                    PreparedStatement ps = conn.prepareStatement(countSql)) {
-                ps.setQueryTimeout(30);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        totalPlayers = rs.getInt("total");
-                        playersWithItems = rs.getInt("with_items");
-                        totalDataSize = rs.getLong("data_size");
-                    }
-                }
-            } catch (Exception e) {
-                EnderChest.getInstance().getLogger()
-                        .warning("[H2Storage] Failed to get player counts: " + e.getMessage());
-            }
-
-            // Count total items by iterating through all players
-            String itemsSql = "SELECT chest_data FROM " + tableName
-                    + " WHERE chest_data IS NOT NULL AND chest_data != ''";
+            String sql = "SELECT 1 FROM " + tableName + " WHERE player_uuid = ? LIMIT 1";
             try (Connection conn = storageManager.getConnection();
-                    PreparedStatement ps = conn.prepareStatement(itemsSql)) {
-                ps.setQueryTimeout(60);
+                    PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setQueryTimeout(10);
+                ps.setString(1, playerUUID.toString());
                 try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        String data = rs.getString("chest_data");
-                        try {
-                            ItemStack[] items = ItemSerializer.fromBase64(data);
-                            if (items != null) {
-                                for (ItemStack item : items) {
-                                    if (item != null && !item.getType().isAir()) {
-                                        totalItems++;
-                                    }
-                                }
-                            }
-                        } catch (Exception ignored) {
-                            // Skip corrupted data
-                        }
-                    }
+                    return rs.next();
                 }
             } catch (Exception e) {
-                EnderChest.getInstance().getLogger().warning("[H2Storage] Failed to count items: " + e.getMessage());
+                EnderChest.getInstance().getLogger().warning(
+                        "[H2Storage] Failed to check data existence for " + playerUUID + ": " + e.getMessage());
             }
+            return false;
+        }, executor);
+    }
 
-            // Count overflow data
-            String overflowCountSql = "SELECT COUNT(*) as total FROM " + tableName
-                    + "_overflow WHERE overflow_data IS NOT NULL";
+    @Override
+    public CompletableFuture<StorageStats> getStorageStats() {
+        return CompletableFuture.supplyAsync(() -> {
+            // Everything comes from the stored counts and sizes, no chest data is read
+            String sql = "SELECT COUNT(*) AS total, " +
+                    "SUM(CASE WHEN item_count > 0 THEN 1 ELSE 0 END) AS with_items, " +
+                    "SUM(COALESCE(item_count, 0)) AS items, " +
+                    "SUM(COALESCE(payload_bytes, 0)) AS data_size, " +
+                    "(SELECT COUNT(*) FROM " + tableName + "_overflow WHERE overflow_data IS NOT NULL) AS overflow_players, " +
+                    "(SELECT SUM(COALESCE(item_count, 0)) FROM " + tableName + "_overflow) AS overflow_items " +
+                    "FROM " + tableName + "";
             try (Connection conn = storageManager.getConnection();
-                    PreparedStatement ps = conn.prepareStatement(overflowCountSql)) {
+                    PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setQueryTimeout(30);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        totalOverflowPlayers = rs.getInt("total");
-                    }
-                }
-            } catch (Exception e) {
-                EnderChest.getInstance().getLogger()
-                        .warning("[H2Storage] Failed to count overflow players: " + e.getMessage());
-            }
-
-            // Count overflow items
-            String overflowItemsSql = "SELECT overflow_data FROM " + tableName
-                    + "_overflow WHERE overflow_data IS NOT NULL";
-            try (Connection conn = storageManager.getConnection();
-                    PreparedStatement ps = conn.prepareStatement(overflowItemsSql)) {
-                ps.setQueryTimeout(60);
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        String data = rs.getString("overflow_data");
-                        try {
-                            ItemStack[] items = ItemSerializer.fromBase64(data);
-                            if (items != null) {
-                                for (ItemStack item : items) {
-                                    if (item != null && !item.getType().isAir()) {
-                                        totalOverflowItems++;
-                                    }
-                                }
-                            }
-                        } catch (Exception ignored) {
-                            // Skip corrupted data
-                        }
+                        return new StorageStats(rs.getInt("total"), rs.getInt("with_items"), rs.getInt("items"),
+                                rs.getInt("overflow_players"), rs.getInt("overflow_items"), rs.getLong("data_size"));
                     }
                 }
             } catch (Exception e) {
-                EnderChest.getInstance().getLogger()
-                        .warning("[H2Storage] Failed to count overflow items: " + e.getMessage());
+                EnderChest.getInstance().getLogger().warning("[H2Storage] Failed to get storage stats: " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new java.util.concurrent.CompletionException(e);
             }
-
-            return new StorageStats(totalPlayers, playersWithItems, totalItems,
-                    totalOverflowPlayers, totalOverflowItems, totalDataSize);
-        });
+            return new StorageStats(0, 0, 0, 0, 0, 0);
+        }, executor);
     }
 
     @Override
-    public CompletableFuture<java.util.List<PlayerDataInfo>> getPlayersWithItems() {
+    public CompletableFuture<Integer> scanPlayers(Consumer<PlayerDataInfo> consumer, boolean verify) {
         return CompletableFuture.supplyAsync(() -> {
-            java.util.List<PlayerDataInfo> result = new java.util.ArrayList<>();
-
-            // Pre-load overflow UUIDs to avoid N+1 queries
-            java.util.Set<UUID> overflowUUIDs = new java.util.HashSet<>();
-            try (Connection connOvf = storageManager.getConnection();
-                    PreparedStatement psOvf = connOvf.prepareStatement(
-                            "SELECT player_uuid FROM " + tableName + "_overflow")) {
-                psOvf.setQueryTimeout(30);
-                try (ResultSet rsOvf = psOvf.executeQuery()) {
-                    while (rsOvf.next()) {
-                        overflowUUIDs.add(UUID.fromString(rsOvf.getString("player_uuid")));
-                    }
-                }
-            } catch (Exception ignored) {
-            }
-
-            String sql = "SELECT player_uuid, player_name, chest_size, chest_data FROM " + tableName;
+            // Without verify the payload is only read for rows saved before item_count existed
+            String payload = verify ? "c.chest_bytes, c.chest_data"
+                    : "CASE WHEN c.item_count IS NULL THEN c.chest_bytes END AS chest_bytes, "
+                            + "CASE WHEN c.item_count IS NULL THEN c.chest_data END AS chest_data";
+            String sql = "SELECT c.player_uuid, c.player_name, c.chest_size, c.item_count, " + payload
+                    + ", o.player_uuid AS overflow_uuid FROM " + tableName + " c LEFT JOIN " + tableName + "_overflow o "
+                    + "ON o.player_uuid = c.player_uuid";
+            int count = 0;
             try (Connection conn = storageManager.getConnection();
-                    PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setQueryTimeout(60);
+                    PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(1000);
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        UUID uuid = UUID.fromString(rs.getString("player_uuid"));
-                        String name = rs.getString("player_name");
-                        int size = rs.getInt("chest_size");
-                        String data = rs.getString("chest_data");
-
-                        int itemCount = 0;
-                        boolean isCorrupted = false;
-                        String errorMessage = null;
-
-                        if (data != null && !data.isEmpty()) {
-                            try {
-                                ItemStack[] items = ItemSerializer.fromBase64(data);
-                                if (items != null) {
-                                    for (ItemStack item : items) {
-                                        if (item != null && !item.getType().isAir()) {
-                                            itemCount++;
-                                        }
-                                    }
-                                }
-                            } catch (Exception e) {
-                                isCorrupted = true;
-                                errorMessage = e.getMessage();
-                            }
+                        UUID uuid;
+                        try {
+                            uuid = UUID.fromString(rs.getString("player_uuid"));
+                        } catch (IllegalArgumentException ignored) {
+                            continue; // Skip rows with an invalid UUID
                         }
-
-                        boolean hasOverflow = overflowUUIDs.contains(uuid);
-                        result.add(new PlayerDataInfo(uuid, name, size, itemCount, hasOverflow, isCorrupted, errorMessage));
+                        consumer.accept(readPlayerInfo(uuid, rs));
+                        count++;
                     }
                 }
             } catch (Exception e) {
-                EnderChest.getInstance().getLogger()
-                        .warning("[H2Storage] Failed to get players with items: " + e.getMessage());
+                EnderChest.getInstance().getLogger().warning("[H2Storage] Failed to scan players: " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new java.util.concurrent.CompletionException(e);
             }
+            return count;
+        }, executor);
+    }
 
-            return result;
-        });
+    // Takes the stored item count, or decodes the payload if the scan selected it
+    private static PlayerDataInfo readPlayerInfo(UUID uuid, ResultSet rs) throws SQLException {
+        int itemCount = rs.getInt("item_count");
+        boolean isCorrupted = false;
+        String errorMessage = null;
+        try {
+            byte[] payload = readChestPayload(rs);
+            if (payload.length > 0) {
+                itemCount = ItemSerializer.countItems(ItemSerializer.fromBytes(payload));
+            }
+        } catch (Exception e) {
+            isCorrupted = true;
+            errorMessage = e.getMessage();
+        }
+        return new PlayerDataInfo(uuid, rs.getString("player_name"), rs.getInt("chest_size"), itemCount,
+                rs.getString("overflow_uuid") != null, isCorrupted, errorMessage);
     }
 }
@@ -4,21 +4,36 @@ import static org.maiminhdung.customenderchest.EnderChest.ERROR_TRACKER;
 
 import org.maiminhdung.customenderchest.EnderChest;
 import org.maiminhdung.customenderchest.data.ItemSerializer;
+import org.maiminhdung.customenderchest.storage.SaveFingerprintCache;
 import org.maiminhdung.customenderchest.storage.StorageInterface;
+import org.maiminhdung.customenderchest.storage.StorageManager;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class YmlStorage implements StorageInterface {
 
     private final File dataFolder;
+    private final StorageManager storageManager;
+    private final Executor executor;
 
-    public YmlStorage(EnderChest plugin) {
+    public YmlStorage(EnderChest plugin, StorageManager storageManager) {
+        this.storageManager = storageManager;
+        this.executor = storageManager.getExecutor();
         this.dataFolder = new File(plugin.getDataFolder(), "playerdata");
         if (!dataFolder.exists()) {
             dataFolder.mkdirs();
@@ -29,6 +44,70 @@ public class YmlStorage implements StorageInterface {
         return new File(dataFolder, playerUUID.toString() + ".yml");
     }
 
+    /**
+     * Header details plus the overflow item count, which only stats need
+     */
+    private static final class FileMeta extends ChestMeta {
+        final int overflowItemCount; // -1 if unknown
+
+        FileMeta(String playerName, int size, long lastSeen, int itemCount, boolean hasOverflow, long payloadHash,
+                int overflowItemCount) {
+            super(playerName, size, lastSeen, itemCount, hasOverflow, payloadHash);
+            this.overflowItemCount = overflowItemCount;
+        }
+    }
+
+    /**
+     * Read the keys written before the item list. Saves put the name, size and the other details
+     * first, so this stops at "enderchest-inventory:" and never parses an item.
+     *
+     * @return The details, or null if the file does not exist
+     */
+    private FileMeta readMeta(File playerFile) throws IOException {
+        if (!playerFile.exists()) {
+            return null;
+        }
+        StringBuilder header = new StringBuilder();
+        Boolean hasOverflow = null;
+        try (BufferedReader reader = Files.newBufferedReader(playerFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            boolean inHeader = true;
+            while ((line = reader.readLine()) != null) {
+                if (inHeader && line.startsWith("enderchest-inventory:")) {
+                    inHeader = false;
+                    YamlConfiguration parsed = parseHeader(header.toString());
+                    if (parsed.contains("has-overflow")) {
+                        hasOverflow = parsed.getBoolean("has-overflow");
+                        break;
+                    }
+                    // Written before the overflow flag existed, look for the section itself
+                } else if (inHeader) {
+                    header.append(line).append('\n');
+                } else if (line.startsWith("overflow-items:")) {
+                    hasOverflow = true;
+                    break;
+                }
+            }
+        }
+
+        YamlConfiguration parsed = parseHeader(header.toString());
+        boolean overflow = hasOverflow != null ? hasOverflow : parsed.getBoolean("has-overflow", false);
+        return new FileMeta(parsed.getString("player-name"), parsed.getInt("enderchest-size", 0),
+                parsed.getLong("last-seen", playerFile.lastModified()), parsed.getInt("item-count", -1),
+                overflow, parsed.getLong("payload-hash", 0),
+                overflow ? parsed.getInt("overflow-item-count", -1) : 0);
+    }
+
+    private static YamlConfiguration parseHeader(String header) throws IOException {
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.loadFromString(header);
+        } catch (Exception e) {
+            throw new IOException("Invalid player file header: " + e.getMessage(), e);
+        }
+        return config;
+    }
+
     @Override
     public CompletableFuture<ItemStack[]> loadEnderChest(UUID playerUUID) {
         return CompletableFuture.supplyAsync(() -> {
@@ -36,6 +115,8 @@ public class YmlStorage implements StorageInterface {
             if (!playerFile.exists()) {
                 return null;
             }
+            // The file may have been replaced outside a normal save, so the next save must not be skipped
+            storageManager.getSaveFingerprints().invalidate(playerUUID);
             YamlConfiguration config = new YamlConfiguration();
             try {
                 config.load(playerFile);
@@ -49,24 +130,82 @@ public class YmlStorage implements StorageInterface {
             List<Map<String, Object>> serializedItems = (List<Map<String, Object>>) config.getList("enderchest-inventory");
 
             return ItemSerializer.deserialize(serializedItems);
-        });
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<PlayerState> loadPlayerState(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            File playerFile = getPlayerFile(playerUUID);
+            if (!playerFile.exists()) {
+                return null;
+            }
+            storageManager.getSaveFingerprints().invalidate(playerUUID);
+            // One parse for chest, size, name and overflow
+            YamlConfiguration config = new YamlConfiguration();
+            try {
+                config.load(playerFile);
+            } catch (Exception e) {
+                ERROR_TRACKER.trackError(e);
+                throw new java.util.concurrent.CompletionException("Failed to load yml", e);
+            }
+
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> serializedItems = (List<Map<String, Object>>) config.getList("enderchest-inventory");
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> overflowItems = (List<Map<String, Object>>) config.getList("overflow-items");
+
+            return new PlayerState(config.getString("player-name"), config.getInt("enderchest-size", 0),
+                    ItemSerializer.deserialize(serializedItems),
+                    overflowItems != null ? ItemSerializer.deserialize(overflowItems) : null);
+        }, executor);
     }
 
     @Override
     public CompletableFuture<Void> saveEnderChest(UUID playerUUID, String playerName, int size, ItemStack[] items) {
         return CompletableFuture.runAsync(() -> {
             File playerFile = getPlayerFile(playerUUID);
-            YamlConfiguration config = new YamlConfiguration();
-            config.set("player-name", playerName);
-            config.set("enderchest-size", size);
-            config.set("enderchest-inventory", ItemSerializer.serialize(items));
+            YamlConfiguration inventory = new YamlConfiguration();
+            inventory.set("enderchest-inventory", ItemSerializer.serialize(items));
+            String data = inventory.saveToString();
+            long fingerprint = SaveFingerprintCache.fingerprint(playerName, size, data);
+            if (storageManager.getSaveFingerprints().isUnchanged(playerUUID, fingerprint)) {
+                return;
+            }
             try {
-                config.save(playerFile);
+                // Overflow items share the file, carry them over instead of dropping them
+                String overflow = "";
+                int overflowItemCount = 0;
+                FileMeta previous = readMeta(playerFile);
+                if (previous != null && previous.hasOverflow) {
+                    YamlConfiguration existing = YamlConfiguration.loadConfiguration(playerFile);
+                    YamlConfiguration overflowConfig = new YamlConfiguration();
+                    overflowConfig.set("overflow-items", existing.get("overflow-items"));
+                    overflowConfig.set("overflow-created-at", existing.get("overflow-created-at"));
+                    overflow = overflowConfig.saveToString();
+                    overflowItemCount = previous.overflowItemCount >= 0 ? previous.overflowItemCount
+                            : ItemSerializer.countItems(readItems(existing, "overflow-items"));
+                }
+
+                // Details first, so readMeta can stop before the items
+                YamlConfiguration header = new YamlConfiguration();
+                header.set("player-name", playerName);
+                header.set("enderchest-size", size);
+                header.set("last-seen", System.currentTimeMillis());
+                header.set("item-count", ItemSerializer.countItems(items));
+                header.set("payload-hash", fingerprint);
+                header.set("has-overflow", !overflow.isEmpty());
+                header.set("overflow-item-count", overflowItemCount);
+                Files.writeString(playerFile.toPath(), header.saveToString() + data + overflow, StandardCharsets.UTF_8);
+                storageManager.getSaveFingerprints().recordWrite(playerUUID, fingerprint);
+                storageManager.getNameIndex().put(playerUUID, playerName);
             } catch (Exception e) {
-                e.printStackTrace();
+                EnderChest.getInstance().getLogger().severe("Failed to save enderchest for " + playerName
+                        + " (" + playerUUID + "): " + e.getMessage());
                 ERROR_TRACKER.trackError(e);
+                throw new java.util.concurrent.CompletionException(e);
             }
-        });
+        }, executor);
     }
 
     // --- Another method ---
@@ -79,47 +218,61 @@ public class YmlStorage implements StorageInterface {
     @Override
     public CompletableFuture<Integer> loadEnderChestSize(UUID playerUUID) {
         return CompletableFuture.supplyAsync(() -> {
-            File playerFile = getPlayerFile(playerUUID);
-            if (!playerFile.exists()) return 0;
-            YamlConfiguration config = new YamlConfiguration();
             try {
-                config.load(playerFile);
+                ChestMeta meta = readMeta(getPlayerFile(playerUUID));
+                return meta != null ? meta.size : 0;
             } catch (Exception e) {
                 throw new java.util.concurrent.CompletionException(e);
             }
-            return config.getInt("enderchest-size", 0);
-        });
+        }, executor);
     }
 
     @Override
     public CompletableFuture<Void> deleteEnderChest(UUID playerUUID) {
         return CompletableFuture.runAsync(() -> {
+            storageManager.getSaveFingerprints().invalidate(playerUUID);
+            storageManager.getNameIndex().remove(playerUUID);
             File playerFile = getPlayerFile(playerUUID);
             if (playerFile.exists()) {
                 playerFile.delete();
             }
-        });
+        }, executor);
     }
 
     @Override
     public CompletableFuture<String> getPlayerName(UUID playerUUID) {
         return CompletableFuture.supplyAsync(() -> {
-            File playerFile = getPlayerFile(playerUUID);
-            if (!playerFile.exists()) return null;
-            return YamlConfiguration.loadConfiguration(playerFile).getString("player-name");
-        });
+            try {
+                ChestMeta meta = readMeta(getPlayerFile(playerUUID));
+                return meta != null ? meta.playerName : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<ChestMeta> loadChestMeta(UUID playerUUID) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return readMeta(getPlayerFile(playerUUID));
+            } catch (IOException e) {
+                throw new java.util.concurrent.CompletionException(e);
+            }
+        }, executor);
     }
 
     @Override
     public CompletableFuture<UUID> findUUIDByName(String playerName) {
+        // StorageManager answers from its name index once loaded, this scan covers startup
         return CompletableFuture.supplyAsync(() -> {
             File[] files = dataFolder.listFiles((dir, name) -> name.endsWith(".yml"));
             if (files == null) return null;
 
             for (File file : files) {
                 try {
-                    YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
-                    String storedName = config.getString("player-name");
+                    ChestMeta meta = readMeta(file);
+                    String storedName = meta != null ? meta.playerName : null;
                     if (storedName != null && storedName.equalsIgnoreCase(playerName)) {
                         // Extract UUID from filename (remove .yml extension)
                         String filename = file.getName();
@@ -131,7 +284,31 @@ public class YmlStorage implements StorageInterface {
                 }
             }
             return null;
-        });
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Integer> scanPlayerNames(BiConsumer<UUID, String> consumer) {
+        return CompletableFuture.supplyAsync(() -> {
+            int count = 0;
+            File[] files = dataFolder.listFiles((dir, name) -> name.endsWith(".yml"));
+            if (files == null) return 0;
+            for (File file : files) {
+                try {
+                    String filename = file.getName();
+                    UUID uuid = UUID.fromString(filename.substring(0, filename.length() - 4));
+                    ChestMeta meta = readMeta(file);
+                    String storedName = meta != null ? meta.playerName : null;
+                    if (storedName != null) {
+                        consumer.accept(uuid, storedName);
+                        count++;
+                    }
+                } catch (Exception e) {
+                    // Skip invalid files
+                }
+            }
+            return count;
+        }, executor);
     }
 
     @Override
@@ -141,14 +318,16 @@ public class YmlStorage implements StorageInterface {
             YamlConfiguration config = YamlConfiguration.loadConfiguration(playerFile);
             config.set("overflow-items", ItemSerializer.serialize(items));
             config.set("overflow-created-at", System.currentTimeMillis());
+            config.set("has-overflow", true);
+            config.set("overflow-item-count", ItemSerializer.countItems(items));
             try {
                 config.save(playerFile);
             } catch (Exception e) {
                 EnderChest.getInstance().getLogger().severe("Failed to save overflow items for " + playerUUID);
-                e.printStackTrace();
                 ERROR_TRACKER.trackError(e);
+                throw new java.util.concurrent.CompletionException(e);
             }
-        });
+        }, executor);
     }
 
     @Override
@@ -169,7 +348,7 @@ public class YmlStorage implements StorageInterface {
 
             if (serializedItems == null) return null;
             return ItemSerializer.deserialize(serializedItems);
-        });
+        }, executor);
     }
 
     @Override
@@ -181,24 +360,27 @@ public class YmlStorage implements StorageInterface {
             YamlConfiguration config = YamlConfiguration.loadConfiguration(playerFile);
             config.set("overflow-items", null);
             config.set("overflow-created-at", null);
+            config.set("has-overflow", false);
+            config.set("overflow-item-count", 0);
             try {
                 config.save(playerFile);
             } catch (Exception e) {
                 e.printStackTrace();
                 ERROR_TRACKER.trackError(e);
             }
-        });
+        }, executor);
     }
 
     @Override
     public CompletableFuture<Boolean> hasOverflowItems(UUID playerUUID) {
         return CompletableFuture.supplyAsync(() -> {
-            File playerFile = getPlayerFile(playerUUID);
-            if (!playerFile.exists()) return false;
-
-            YamlConfiguration config = YamlConfiguration.loadConfiguration(playerFile);
-            return config.contains("overflow-items");
-        });
+            try {
+                ChestMeta meta = readMeta(getPlayerFile(playerUUID));
+                return meta != null && meta.hasOverflow;
+            } catch (IOException e) {
+                return false;
+            }
+        }, executor);
     }
 
     @Override
@@ -206,7 +388,7 @@ public class YmlStorage implements StorageInterface {
         return CompletableFuture.supplyAsync(() -> {
             File playerFile = getPlayerFile(playerUUID);
             return playerFile.exists();
-        });
+        }, executor);
     }
 
     @Override
@@ -219,114 +401,115 @@ public class YmlStorage implements StorageInterface {
             int totalOverflowItems = 0;
             long totalDataSize = 0;
 
-            File[] files = dataFolder.listFiles((dir, name) -> name.endsWith(".yml"));
-            if (files == null) {
+            if (!dataFolder.isDirectory()) {
                 return new StorageStats(0, 0, 0, 0, 0, 0);
             }
 
-            for (File file : files) {
-                totalPlayers++;
-                totalDataSize += file.length();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dataFolder.toPath(), "*.yml")) {
+                for (Path path : files) {
+                    File file = path.toFile();
+                    totalPlayers++;
+                    totalDataSize += file.length();
 
-                try {
-                    YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
-
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> serializedItems = (List<Map<String, Object>>) config.getList("enderchest-inventory");
-
-                    if (serializedItems != null && !serializedItems.isEmpty()) {
-                        ItemStack[] items = ItemSerializer.deserialize(serializedItems);
-                        if (items != null) {
-                            boolean hasAnyItem = false;
-                            for (ItemStack item : items) {
-                                if (item != null && !item.getType().isAir()) {
-                                    totalItems++;
-                                    hasAnyItem = true;
-                                }
-                            }
-                            if (hasAnyItem) {
-                                playersWithItems++;
-                            }
+                    try {
+                        // Counts come from the header, only files written by older versions need a full parse
+                        FileMeta meta = readMeta(file);
+                        YamlConfiguration config = null;
+                        int itemCount = meta.itemCount;
+                        if (itemCount < 0) {
+                            config = YamlConfiguration.loadConfiguration(file);
+                            itemCount = ItemSerializer.countItems(readItems(config, "enderchest-inventory"));
+                        }
+                        if (itemCount > 0) {
+                            playersWithItems++;
+                            totalItems += itemCount;
                         }
-                    }
 
-                    // Check overflow
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> overflowItems = (List<Map<String, Object>>) config.getList("overflow-items");
-                    if (overflowItems != null && !overflowItems.isEmpty()) {
-                        totalOverflowPlayers++;
-                        ItemStack[] items = ItemSerializer.deserialize(overflowItems);
-                        if (items != null) {
-                            for (ItemStack item : items) {
-                                if (item != null && !item.getType().isAir()) {
-                                    totalOverflowItems++;
+                        if (meta.hasOverflow) {
+                            totalOverflowPlayers++;
+                            if (meta.overflowItemCount >= 0) {
+                                totalOverflowItems += meta.overflowItemCount;
+                            } else {
+                                if (config == null) {
+                                    config = YamlConfiguration.loadConfiguration(file);
                                 }
+                                totalOverflowItems += ItemSerializer.countItems(readItems(config, "overflow-items"));
                             }
                         }
+                    } catch (Exception e) {
+                        EnderChest.getInstance().getLogger().warning("[YmlStorage] Failed to read file " + file.getName() + ": " + e.getMessage());
+                        ERROR_TRACKER.trackError(e);
                     }
-                } catch (Exception e) {
-                    EnderChest.getInstance().getLogger().warning("[YmlStorage] Failed to read file " + file.getName() + ": " + e.getMessage());
-                    ERROR_TRACKER.trackError(e);
                 }
+            } catch (IOException e) {
+                EnderChest.getInstance().getLogger().warning("[YmlStorage] Failed to list player files: " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
             }
 
             return new StorageStats(totalPlayers, playersWithItems, totalItems,
                     totalOverflowPlayers, totalOverflowItems, totalDataSize);
-        });
+        }, executor);
     }
 
     @Override
-    public CompletableFuture<java.util.List<PlayerDataInfo>> getPlayersWithItems() {
+    public CompletableFuture<Integer> scanPlayers(Consumer<PlayerDataInfo> consumer, boolean verify) {
         return CompletableFuture.supplyAsync(() -> {
-            java.util.List<PlayerDataInfo> result = new java.util.ArrayList<>();
-
-            File[] files = dataFolder.listFiles((dir, name) -> name.endsWith(".yml"));
-            if (files == null) {
-                return result;
+            int count = 0;
+            if (!dataFolder.isDirectory()) {
+                return 0;
             }
-
-            for (File file : files) {
-                try {
-                    String fileName = file.getName().replace(".yml", "");
-                    UUID uuid = UUID.fromString(fileName);
-
-                    YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
-                    String name = config.getString("player-name", "Unknown");
-                    int size = config.getInt("enderchest-size", 0);
-
-                    int itemCount = 0;
-                    boolean isCorrupted = false;
-                    String errorMessage = null;
-
+            // Walk the folder lazily so only one file is held at a time
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dataFolder.toPath(), "*.yml")) {
+                for (Path path : files) {
+                    File file = path.toFile();
+                    String fileName = file.getName();
+                    UUID uuid;
                     try {
-                        @SuppressWarnings("unchecked")
-                        List<Map<String, Object>> serializedItems = (List<Map<String, Object>>) config.getList("enderchest-inventory");
-
-                        if (serializedItems != null) {
-                            ItemStack[] items = ItemSerializer.deserialize(serializedItems);
-                            if (items != null) {
-                                for (ItemStack item : items) {
-                                    if (item != null && !item.getType().isAir()) {
-                                        itemCount++;
-                                    }
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        isCorrupted = true;
-                        errorMessage = e.getMessage();
+                        uuid = UUID.fromString(fileName.substring(0, fileName.length() - 4));
+                    } catch (IllegalArgumentException e) {
+                        continue; // Not a player file
                     }
-
-                    // Check for overflow
-                    boolean hasOverflow = config.contains("overflow-items");
-
-                    result.add(new PlayerDataInfo(uuid, name, size, itemCount, hasOverflow, isCorrupted, errorMessage));
-                } catch (Exception e) {
-                    EnderChest.getInstance().getLogger().warning("[YmlStorage] Failed to parse file " + file.getName() + ": " + e.getMessage());
+                    consumer.accept(readPlayerInfo(file, uuid, verify));
+                    count++;
                 }
+            } catch (IOException e) {
+                EnderChest.getInstance().getLogger().warning("[YmlStorage] Failed to scan players: " + e.getMessage());
+                ERROR_TRACKER.trackError(e);
+                throw new java.util.concurrent.CompletionException(e);
             }
+            return count;
+        }, executor);
+    }
+
+    // Details come from the header, the items are only parsed to verify them or for files without item-count
+    private PlayerDataInfo readPlayerInfo(File file, UUID uuid, boolean verify) {
+        ChestMeta meta;
+        try {
+            meta = readMeta(file);
+        } catch (IOException e) {
+            return new PlayerDataInfo(uuid, "Unknown", 0, 0, false, true, e.getMessage());
+        }
+        String name = meta.playerName != null ? meta.playerName : "Unknown";
+        if (!verify && meta.itemCount >= 0) {
+            return new PlayerDataInfo(uuid, name, meta.size, meta.itemCount, meta.hasOverflow, false, null);
+        }
+
+        int itemCount = 0;
+        boolean isCorrupted = false;
+        String errorMessage = null;
+        try {
+            YamlConfiguration config = new YamlConfiguration();
+            config.load(file);
+            itemCount = ItemSerializer.countItems(readItems(config, "enderchest-inventory"));
+        } catch (Exception e) {
+            isCorrupted = true;
+            errorMessage = e.getMessage();
+        }
+        return new PlayerDataInfo(uuid, name, meta.size, itemCount, meta.hasOverflow, isCorrupted, errorMessage);
+    }
 
-            return result;
-        });
+    @SuppressWarnings("unchecked")
+    private static ItemStack[] readItems(YamlConfiguration config, String path) {
+        return ItemSerializer.deserialize((List<Map<String, Object>>) config.getList(path));
     }
 }
\ No newline at end of file
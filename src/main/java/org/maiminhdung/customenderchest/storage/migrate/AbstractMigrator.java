@@ -3,26 +3,65 @@ package org.maiminhdung.customenderchest.storage.migrate;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 import org.maiminhdung.customenderchest.EnderChest;
 import org.maiminhdung.customenderchest.Scheduler;
+import org.maiminhdung.customenderchest.data.ItemSerializer;
+import org.maiminhdung.customenderchest.data.PayloadCodec;
+import org.maiminhdung.customenderchest.storage.SaveFingerprintCache;
 import org.maiminhdung.customenderchest.storage.StorageInterface;
-import org.maiminhdung.customenderchest.utils.DataLockManager;
+import org.maiminhdung.customenderchest.storage.StorageInterface.PlayerDataInfo;
+import org.maiminhdung.customenderchest.storage.StorageInterface.RawPlayerData;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
 
+/**
+ * Copies every player from the source storage to the target storage.
+ * <p>
+ * The player list is read without decoding any chest, sorted by UUID and cut into chunks. Several
+ * chunks are in flight at once: each loads its players in parallel on the source storage threads
+ * and writes them to the target in one batch, so the storage executors bound the work in progress.
+ * <p>
+ * Payloads in Paper's byte format are copied as stored, only legacy payloads are deserialized.
+ * Finished chunks are recorded in a {@link MigrationCheckpoint}, so a migration that was interrupted
+ * continues after the last finished chunk when the same command is run again.
+ */
 public abstract class AbstractMigrator implements Migrator {
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int MAX_LOGGED_MISMATCHES = 10;
+
     protected final EnderChest plugin;
     protected final StorageInterface sourceStorage;
     protected final StorageInterface targetStorage;
+    private final int chunkSize;
+    private final int parallelChunks;
+    private final boolean rawCopy;
+    private final boolean verifyAfter;
 
     public AbstractMigrator(EnderChest plugin, StorageInterface sourceStorage, StorageInterface targetStorage) {
         this.plugin = plugin;
         this.sourceStorage = sourceStorage;
         this.targetStorage = targetStorage;
+        this.chunkSize = Math.max(1, plugin.config().getInt("storage.migration.chunk-size", 200));
+        this.parallelChunks = Math.max(1, plugin.config().getInt("storage.migration.parallel-chunks", 4));
+        this.rawCopy = plugin.config().getBoolean("storage.migration.raw-copy", true);
+        this.verifyAfter = plugin.config().getBoolean("storage.migration.verify", true);
     }
 
     @Override
@@ -33,89 +72,365 @@ public abstract class AbstractMigrator implements Migrator {
                 Placeholder.unparsed("target", getTargetName())));
         plugin.getLogger().info("Started migration from " + getSourceName() + " to " + getTargetName());
 
-        return sourceStorage.getPlayersWithItems().thenComposeAsync(players -> {
-            if (players == null || players.isEmpty()) {
+        MigrationCheckpoint checkpoint = MigrationCheckpoint.load(plugin, getSourceName(), getTargetName());
+        // Only the player list is needed here, each chest is loaded when its chunk runs
+        List<PlayerDataInfo> players = new ArrayList<>();
+        return sourceStorage.scanPlayers(players::add, false).thenCompose(count -> {
+            if (players.isEmpty()) {
                 sendMsg(sender, plugin.getLocaleManager().getPrefixedComponent("command.migrate-no-data"));
                 return CompletableFuture.completedFuture(null);
             }
-            int total = players.size();
-            AtomicInteger count = new AtomicInteger(0);
-            AtomicInteger failed = new AtomicInteger(0);
-            AtomicInteger skipped = new AtomicInteger(0);
-
-            CompletableFuture<?> future = CompletableFuture.completedFuture(null);
-            for (StorageInterface.PlayerDataInfo player : players) {
-                future = future.thenCompose(v -> migratePlayer(player.playerUUID, player.playerName, player.chestSize))
-                        .handle((res, ex) -> {
-                            if (ex != null) {
-                                failed.incrementAndGet();
-                                plugin.getLogger().warning(
-                                        "Failed to migrate data for " + player.playerName + ": " + ex.getMessage());
-                            } else if (Boolean.FALSE.equals(res)) {
-                                skipped.incrementAndGet();
-                            } else {
-                                int current = count.incrementAndGet();
-                                if (current % 50 == 0 || current == total) {
-                                    plugin.getLogger().info("Migration progress: " + current + "/" + total + "...");
-                                }
-                            }
-                            return null;
-                        });
+            // UUID order lets the checkpoint be a single key
+            List<PlayerDataInfo> pending = players.stream()
+                    .filter(player -> checkpoint.isPending(player.playerUUID))
+                    .sorted(Comparator.comparing(player -> player.playerUUID.toString()))
+                    .collect(Collectors.toList());
+            if (checkpoint.isResumed()) {
+                sendMsg(sender, plugin.getLocaleManager().getPrefixedComponent(
+                        "command.migrate-resume",
+                        Placeholder.unparsed("last", checkpoint.getLastKey()),
+                        Placeholder.unparsed("done", String.valueOf(checkpoint.getMigrated())),
+                        Placeholder.unparsed("retry", String.valueOf(checkpoint.getRetryCount())),
+                        Placeholder.unparsed("source", getSourceName().toLowerCase()),
+                        Placeholder.unparsed("target", getTargetName().toLowerCase())));
+                plugin.getLogger().info("Resuming migration after " + checkpoint.getLastKey() + ", "
+                        + pending.size() + " players left.");
             }
-            return future.thenAccept(v -> {
-                int skippedCount = skipped.get();
+
+            Progress progress = new Progress(sender, pending.size());
+            checkpoint.begin((pending.size() + chunkSize - 1) / chunkSize);
+            return runChunks(pending, (index, chunk) -> migrateChunk(index, chunk, checkpoint, progress))
+                    .thenCompose(v -> {
+                        int retry = checkpoint.finish();
+                        sendMsg(sender, plugin.getLocaleManager().getPrefixedComponent(
+                                "command.migrate-success",
+                                Placeholder.unparsed("success", String.valueOf(progress.migrated.get())),
+                                Placeholder.unparsed("total", String.valueOf(progress.total)),
+                                Placeholder.unparsed("failed", String.valueOf(progress.failed.get()))));
+                        if (retry > 0) {
+                            sendMsg(sender, plugin.getLocaleManager().getPrefixedComponent(
+                                    "command.migrate-checkpoint-kept",
+                                    Placeholder.unparsed("retry", String.valueOf(retry))));
+                        }
+                        plugin.getLogger().info("Migration finished. Success: " + progress.migrated.get()
+                                + ", Failed: " + progress.failed.get()
+                                + ", Skipped: " + progress.skipped.get()
+                                + ", Copied raw: " + progress.rawCopies.get()
+                                + ", Re-encoded: " + progress.reencoded.get()
+                                + String.format(" (%.1f rows/s)", progress.rowsPerSecond(System.nanoTime())));
+                        return verifyAfter ? verify(sender) : CompletableFuture.completedFuture(null);
+                    })
+                    .thenRun(() -> sendMsg(sender, plugin.getLocaleManager().getPrefixedComponent("command.migrate-note")));
+        });
+    }
+
+    /**
+     * Compare every source player with the target: row counts, chest size and a hash of the
+     * uncompressed chest and overflow payloads.
+     */
+    @Override
+    public CompletableFuture<Void> verify(CommandSender sender) {
+        sendMsg(sender, plugin.getLocaleManager().getPrefixedComponent("command.migrate-verify-start"));
+        List<PlayerDataInfo> players = new ArrayList<>();
+        CompletableFuture<Integer> sourceRows = sourceStorage.scanPlayers(players::add, false);
+        CompletableFuture<Integer> targetRows = targetStorage.scanPlayers(info -> {
+        }, false);
+
+        return sourceRows.thenCombine(targetRows, (s, t) -> t).thenCompose(targetCount -> {
+            Verification result = new Verification();
+            return runChunks(players, (index, chunk) -> verifyChunk(chunk, result)).thenRun(() -> {
+                plugin.getLogger().info("Migration verification: source " + players.size() + " rows, target "
+                        + targetCount + " rows, matched " + result.matched.get() + ", mismatched "
+                        + result.mismatched.get() + ", missing " + result.missing.get());
+                boolean ok = result.mismatched.get() == 0 && result.missing.get() == 0;
                 sendMsg(sender, plugin.getLocaleManager().getPrefixedComponent(
-                        "command.migrate-success",
-                        Placeholder.unparsed("success", String.valueOf(count.get())),
-                        Placeholder.unparsed("total", String.valueOf(total)),
-                        Placeholder.unparsed("failed", String.valueOf(failed.get()))));
-                sendMsg(sender, plugin.getLocaleManager().getPrefixedComponent("command.migrate-note"));
-                plugin.getLogger().info("Migration finished. Success: " + count.get()
-                        + ", Failed: " + failed.get()
-                        + ", Skipped: " + skippedCount);
+                        ok ? "command.migrate-verify-ok" : "command.migrate-verify-failed",
+                        Placeholder.unparsed("matched", String.valueOf(result.matched.get())),
+                        Placeholder.unparsed("mismatched", String.valueOf(result.mismatched.get())),
+                        Placeholder.unparsed("missing", String.valueOf(result.missing.get())),
+                        Placeholder.unparsed("total", String.valueOf(players.size())),
+                        Placeholder.unparsed("source_rows", String.valueOf(players.size())),
+                        Placeholder.unparsed("target_rows", String.valueOf(targetCount))));
             });
         });
     }
 
+    // Run the task over every chunk with up to parallelChunks chunks in flight
+    private CompletableFuture<Void> runChunks(List<PlayerDataInfo> players,
+            BiFunction<Integer, List<PlayerDataInfo>, CompletableFuture<Void>> task) {
+        AtomicInteger nextChunk = new AtomicInteger(0);
+        int chunks = (players.size() + chunkSize - 1) / chunkSize;
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(parallelChunks, chunks)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = runLane(players, nextChunk, task);
+        }
+        return CompletableFuture.allOf(lanes);
+    }
+
+    // Take chunks until none are left. Lanes share the counter, so each chunk runs exactly once.
+    private CompletableFuture<Void> runLane(List<PlayerDataInfo> players, AtomicInteger nextChunk,
+            BiFunction<Integer, List<PlayerDataInfo>, CompletableFuture<Void>> task) {
+        int index = nextChunk.getAndIncrement();
+        int start = index * chunkSize;
+        if (start >= players.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<PlayerDataInfo> chunk = players.subList(start, Math.min(start + chunkSize, players.size()));
+        return task.apply(index, chunk).thenCompose(v -> runLane(players, nextChunk, task));
+    }
+
     /**
-     * Migrate a single player's data from source to target storage.
-     * Returns Boolean.TRUE on success, Boolean.FALSE if skipped.
+     * Migrate one chunk of players. The chunk waits for operations already queued for its players,
+     * then holds them until their data is written to the target.
      */
-    private CompletableFuture<Boolean> migratePlayer(java.util.UUID uuid, String name, int chestSize) {
-        DataLockManager lockManager = plugin.getDataLockManager();
-        if (!lockManager.tryLock(uuid)) {
-            plugin.getLogger().warning(
-                    "Skipping migration for " + name + " (" + uuid + ") as their data is currently locked/busy.");
-            return CompletableFuture.completedFuture(Boolean.FALSE);
+    private CompletableFuture<Void> migrateChunk(int index, List<PlayerDataInfo> chunk, MigrationCheckpoint checkpoint,
+            Progress progress) {
+        Set<UUID> done = ConcurrentHashMap.newKeySet();
+        Set<UUID> retry = ConcurrentHashMap.newKeySet();
+        List<PlayerDataInfo> locked = new ArrayList<>(chunk);
+        List<UUID> uuids = locked.stream().map(player -> player.playerUUID).toList();
+
+        return plugin.getDataLockManager().submitAll(uuids, "migrate", () -> migrateLocked(locked, done, retry,
+                        progress).orTimeout(2, TimeUnit.MINUTES))
+                .whenComplete((v, ex) -> {
+                    if (ex != null) {
+                        // Whatever did not reach the target has to be tried again
+                        uuids.stream().filter(uuid -> !done.contains(uuid)).forEach(retry::add);
+                    }
+                    checkpoint.chunkFinished(index, chunk.get(chunk.size() - 1).playerUUID.toString(), done, retry);
+                    progress.chunkDone();
+                });
+    }
+
+    private CompletableFuture<Void> migrateLocked(List<PlayerDataInfo> locked, Set<UUID> done, Set<UUID> retry,
+            Progress progress) {
+        List<CompletableFuture<RawPlayerData>> loads = new ArrayList<>(locked.size());
+        for (PlayerDataInfo player : locked) {
+            loads.add(loadSource(player));
         }
 
-        // Auto-save if online to ensure latest data is in sourceStorage before reading
-        // IMPORTANT: Save directly to sourceStorage, NOT the main plugin storage
-        CompletableFuture<Void> prepareFuture = CompletableFuture.completedFuture(null);
-        Player player = Bukkit.getPlayer(uuid);
-        if (player != null && player.isOnline()) {
-            org.bukkit.inventory.Inventory cachedInv = plugin.getEnderChestManager().getLoadedEnderChest(uuid);
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]))
+                .handle((v, ex) -> null) // Failed loads are counted one by one below
+                .thenCompose(v -> {
+                    List<RawPlayerData> batch = new ArrayList<>(locked.size());
+                    for (int i = 0; i < locked.size(); i++) {
+                        PlayerDataInfo player = locked.get(i);
+                        try {
+                            RawPlayerData data = loads.get(i).join();
+                            if (data == null || data.payload.length == 0) {
+                                plugin.getLogger().info("No data to migrate for " + player.playerName + " ("
+                                        + player.playerUUID + "), skipping.");
+                                progress.skipped.incrementAndGet();
+                                continue;
+                            }
+                            batch.add(prepare(data, progress));
+                        } catch (CompletionException | IOException e) {
+                            progress.failed.incrementAndGet();
+                            retry.add(player.playerUUID);
+                            plugin.getLogger().warning("Failed to migrate data for " + player.playerName + ": "
+                                    + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+                        }
+                    }
+                    return writeChunk(batch, done, retry, progress);
+                });
+    }
+
+    // Chest and overflow from the source. An online player's open chest is newer than the stored one.
+    private CompletableFuture<RawPlayerData> loadSource(PlayerDataInfo player) {
+        Player online = Bukkit.getPlayer(player.playerUUID);
+        if (online != null && online.isOnline()) {
+            Inventory cachedInv = plugin.getEnderChestManager().getLoadedEnderChest(player.playerUUID);
             if (cachedInv != null) {
-                prepareFuture = sourceStorage.saveEnderChest(uuid, name, chestSize, cachedInv.getContents());
+                ItemStack[] items = cachedInv.getContents();
+                return sourceStorage.loadOverflowItems(player.playerUUID).thenApply(overflow -> {
+                    try {
+                        return RawPlayerData.fromItems(player.playerUUID, player.playerName, player.chestSize, items,
+                                overflow);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
             }
-            // If cache is null, skip auto-save - sourceStorage already has the latest data on disk
         }
+        return sourceStorage.loadRawPlayerData(player.playerUUID);
+    }
 
-        return prepareFuture.thenCompose(v -> sourceStorage.loadEnderChest(uuid)).thenCompose(items -> {
-            if (items == null || items.length == 0) {
-                plugin.getLogger().info("No data to migrate for " + name + " (" + uuid + "), skipping.");
-                return CompletableFuture.completedFuture(Boolean.FALSE);
-            }
-            return targetStorage.saveEnderChest(uuid, name, chestSize, items).thenCompose(v -> {
-                return sourceStorage.loadOverflowItems(uuid).thenCompose(overflow -> {
-                    if (overflow == null || overflow.length == 0)
+    // Paper format payloads are written as they are. Legacy ones, or all of them with raw-copy off,
+    // are deserialized and written again in the current format.
+    private RawPlayerData prepare(RawPlayerData data, Progress progress) throws IOException {
+        if (isCopiedRaw(data.payload) && (data.overflow == null || isCopiedRaw(data.overflow))) {
+            progress.rawCopies.incrementAndGet();
+            return data;
+        }
+        progress.reencoded.incrementAndGet();
+        return RawPlayerData.fromItems(data.playerUUID, data.playerName, data.size,
+                ItemSerializer.fromBytes(data.payload),
+                data.overflow != null ? ItemSerializer.fromBytes(data.overflow) : null);
+    }
+
+    private boolean isCopiedRaw(byte[] payload) {
+        return rawCopy && (payload.length == 0 || ItemSerializer.isPaperFormat(payload));
+    }
+
+    /**
+     * Write a chunk to the target in one batch. If the batch fails, each player is retried
+     * alone so a single bad row only fails itself.
+     */
+    private CompletableFuture<Void> writeChunk(List<RawPlayerData> batch, Set<UUID> done, Set<UUID> retry,
+            Progress progress) {
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return targetStorage.saveRawPlayerData(batch)
+                .handle((v, ex) -> ex)
+                .thenCompose(ex -> {
+                    if (ex == null) {
+                        batch.forEach(data -> done.add(data.playerUUID));
+                        progress.migrated.addAndGet(batch.size());
                         return CompletableFuture.completedFuture(null);
-                    return targetStorage.saveOverflowItems(uuid, overflow);
+                    }
+                    plugin.getLogger().warning("Batch write of " + batch.size()
+                            + " players failed, retrying them one by one: " + ex.getMessage());
+                    List<CompletableFuture<Void>> writes = new ArrayList<>(batch.size());
+                    for (RawPlayerData data : batch) {
+                        writes.add(targetStorage.saveRawPlayerData(List.of(data)).handle((res, saveEx) -> {
+                            if (saveEx != null) {
+                                progress.failed.incrementAndGet();
+                                retry.add(data.playerUUID);
+                                plugin.getLogger().warning("Failed to migrate data for " + data.playerName + ": "
+                                        + saveEx.getMessage());
+                            } else {
+                                done.add(data.playerUUID);
+                                progress.migrated.incrementAndGet();
+                            }
+                            return null;
+                        }));
+                    }
+                    return CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]));
                 });
-            }).thenApply(v -> Boolean.TRUE);
-        }).whenComplete((res, ex) -> {
-            lockManager.unlock(uuid);
-        });
+    }
+
+    private CompletableFuture<Void> verifyChunk(List<PlayerDataInfo> chunk, Verification result) {
+        List<CompletableFuture<Void>> checks = new ArrayList<>(chunk.size());
+        for (PlayerDataInfo player : chunk) {
+            checks.add(loadSource(player)
+                    .thenCombine(targetStorage.loadRawPlayerData(player.playerUUID), (source, target) -> {
+                        if (source == null || source.payload.length == 0) {
+                            // Nothing to migrate for this player
+                            result.matched.incrementAndGet();
+                        } else if (target == null) {
+                            result.missing.incrementAndGet();
+                            result.log(player, "is missing in the target");
+                        } else if (source.size != target.size) {
+                            result.mismatched.incrementAndGet();
+                            result.log(player, "has chest size " + source.size + " in the source and "
+                                    + target.size + " in the target");
+                        } else if (payloadHash(source.payload) != payloadHash(target.payload)) {
+                            result.mismatched.incrementAndGet();
+                            result.log(player, "has a different chest payload hash");
+                        } else if (payloadHash(source.overflow) != payloadHash(target.overflow)) {
+                            result.mismatched.incrementAndGet();
+                            result.log(player, "has a different overflow payload hash");
+                        } else {
+                            result.matched.incrementAndGet();
+                        }
+                        return (Void) null;
+                    })
+                    .exceptionally(ex -> {
+                        result.mismatched.incrementAndGet();
+                        result.log(player, "could not be read: " + ex.getMessage());
+                        return null;
+                    }));
+        }
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[0]));
+    }
+
+    // Hash of the uncompressed payload, so the same items compare equal whatever codec each side uses.
+    // Payloads that the migration re-encodes are re-encoded here too. 0 for no payload.
+    private long payloadHash(byte[] payload) {
+        if (payload == null) {
+            return 0;
+        }
+        try {
+            byte[] canonical = isCopiedRaw(payload) ? PayloadCodec.decode(payload)
+                    : ItemSerializer.toBytes(ItemSerializer.fromBytes(payload));
+            return SaveFingerprintCache.fingerprint(null, 0, canonical);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Counters shared by all lanes. Reports throughput and an ETA every few seconds.
+     */
+    private final class Progress {
+        private final CommandSender sender;
+        private final int total;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong lastReport = new AtomicLong(startNanos);
+        private final AtomicInteger migrated = new AtomicInteger(0);
+        private final AtomicInteger failed = new AtomicInteger(0);
+        private final AtomicInteger skipped = new AtomicInteger(0);
+        private final AtomicInteger rawCopies = new AtomicInteger(0);
+        private final AtomicInteger reencoded = new AtomicInteger(0);
+
+        private Progress(CommandSender sender, int total) {
+            this.sender = sender;
+            this.total = total;
+        }
+
+        private int processed() {
+            return migrated.get() + failed.get() + skipped.get();
+        }
+
+        private double rowsPerSecond(long now) {
+            double seconds = (now - startNanos) / 1_000_000_000.0;
+            return seconds > 0 ? processed() / seconds : 0;
+        }
+
+        private void chunkDone() {
+            long now = System.nanoTime();
+            long last = lastReport.get();
+            if (now - last < REPORT_INTERVAL_NANOS || !lastReport.compareAndSet(last, now)) {
+                return;
+            }
+            int done = processed();
+            double rate = rowsPerSecond(now);
+            String eta = rate > 0 ? formatDuration(Math.round((total - done) / rate)) : "?";
+            String rateText = String.format("%.1f", rate);
+            plugin.getLogger().info("Migration progress: " + done + "/" + total + " (" + rateText
+                    + " rows/s, ETA " + eta + ")");
+            sendMsg(sender, plugin.getLocaleManager().getPrefixedComponent(
+                    "command.migrate-progress",
+                    Placeholder.unparsed("done", String.valueOf(done)),
+                    Placeholder.unparsed("total", String.valueOf(total)),
+                    Placeholder.unparsed("rate", rateText),
+                    Placeholder.unparsed("eta", eta)));
+        }
+    }
+
+    /**
+     * Outcome of a verification pass
+     */
+    private final class Verification {
+        private final AtomicInteger matched = new AtomicInteger(0);
+        private final AtomicInteger mismatched = new AtomicInteger(0);
+        private final AtomicInteger missing = new AtomicInteger(0);
+        private final AtomicInteger logged = new AtomicInteger(0);
+
+        // Only the first few problems are logged, the counts cover the rest
+        private void log(PlayerDataInfo player, String problem) {
+            if (logged.incrementAndGet() <= MAX_LOGGED_MISMATCHES) {
+                plugin.getLogger().warning("Verification: " + player.playerName + " (" + player.playerUUID + ") "
+                        + problem);
+            }
+        }
+    }
+
+    private static String formatDuration(long seconds) {
+        return seconds >= 3600
+                ? String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60)
+                : String.format("%d:%02d", seconds / 60, seconds % 60);
     }
 
     private void sendMsg(CommandSender sender, Component msg) {
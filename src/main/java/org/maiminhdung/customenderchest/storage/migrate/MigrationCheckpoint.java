@@ -0,0 +1,151 @@
+package org.maiminhdung.customenderchest.storage.migrate;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.maiminhdung.customenderchest.EnderChest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Progress of a migration saved to disk, so an interrupted /cec migrate continues where it stopped.
+ * <p>
+ * Players are migrated in UUID order. The checkpoint holds the last UUID up to which every chunk
+ * has finished, plus the players that failed so the next run retries them.
+ */
+public class MigrationCheckpoint {
+    private static final String FILE_NAME = "migration-checkpoint.yml";
+
+    private final EnderChest plugin;
+    private final File file;
+    private final String source;
+    private final String target;
+    private final Set<String> retryPlayers = new HashSet<>();
+    private String lastKey;
+    private int migrated;
+
+    // Chunks of the current run, finished ones are folded into lastKey in order
+    private String[] chunkKeys = new String[0];
+    private int nextChunk;
+
+    private MigrationCheckpoint(EnderChest plugin, String source, String target) {
+        this.plugin = plugin;
+        this.file = getFile(plugin);
+        this.source = source;
+        this.target = target;
+    }
+
+    public static File getFile(EnderChest plugin) {
+        return new File(plugin.getDataFolder(), FILE_NAME);
+    }
+
+    /**
+     * Load the saved progress of a migration between these storages. A checkpoint left by a
+     * migration between other storages is ignored.
+     */
+    public static MigrationCheckpoint load(EnderChest plugin, String source, String target) {
+        MigrationCheckpoint checkpoint = new MigrationCheckpoint(plugin, source, target);
+        if (!checkpoint.file.exists()) {
+            return checkpoint;
+        }
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(checkpoint.file);
+        if (!source.equalsIgnoreCase(config.getString("source"))
+                || !target.equalsIgnoreCase(config.getString("target"))) {
+            plugin.getLogger().info("Ignoring the checkpoint of a migration from " + config.getString("source")
+                    + " to " + config.getString("target") + ".");
+            return checkpoint;
+        }
+        checkpoint.lastKey = config.getString("last-uuid");
+        checkpoint.migrated = config.getInt("migrated");
+        checkpoint.retryPlayers.addAll(config.getStringList("retry-players"));
+        return checkpoint;
+    }
+
+    public static void delete(EnderChest plugin) {
+        getFile(plugin).delete();
+    }
+
+    public boolean isResumed() {
+        return lastKey != null;
+    }
+
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    public int getMigrated() {
+        return migrated;
+    }
+
+    public synchronized int getRetryCount() {
+        return retryPlayers.size();
+    }
+
+    // True if the player still has to be migrated in this run
+    public boolean isPending(UUID playerUUID) {
+        String key = playerUUID.toString();
+        return lastKey == null || key.compareTo(lastKey) > 0 || retryPlayers.contains(key);
+    }
+
+    public synchronized void begin(int chunkCount) {
+        chunkKeys = new String[chunkCount];
+        nextChunk = 0;
+    }
+
+    /**
+     * Record a finished chunk and save the checkpoint.
+     *
+     * @param index   Chunk number in this run
+     * @param lastKey UUID of the last player in the chunk
+     * @param done    Players written to the target
+     * @param retry   Players that failed
+     */
+    public synchronized void chunkFinished(int index, String lastKey, Collection<UUID> done, Collection<UUID> retry) {
+        done.forEach(uuid -> retryPlayers.remove(uuid.toString()));
+        retry.forEach(uuid -> retryPlayers.add(uuid.toString()));
+        migrated += done.size();
+
+        chunkKeys[index] = lastKey;
+        while (nextChunk < chunkKeys.length && chunkKeys[nextChunk] != null) {
+            // Retried players sort before the old key, never move it backwards
+            String key = chunkKeys[nextChunk++];
+            if (this.lastKey == null || key.compareTo(this.lastKey) > 0) {
+                this.lastKey = key;
+            }
+        }
+        save();
+    }
+
+    /**
+     * Delete the checkpoint once every player is migrated, keep it if some have to be retried.
+     *
+     * @return Number of players left to retry
+     */
+    public synchronized int finish() {
+        if (retryPlayers.isEmpty()) {
+            file.delete();
+        } else {
+            save();
+        }
+        return retryPlayers.size();
+    }
+
+    private void save() {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("source", source);
+        config.set("target", target);
+        config.set("last-uuid", lastKey);
+        config.set("migrated", migrated);
+        config.set("retry-players", List.copyOf(retryPlayers));
+        config.set("updated-at", System.currentTimeMillis());
+        try {
+            config.save(file);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to save migration checkpoint: " + e.getMessage());
+        }
+    }
+}
@@ -6,6 +6,9 @@ import org.bukkit.command.CommandSender;
 import org.maiminhdung.customenderchest.EnderChest;
 import org.maiminhdung.customenderchest.Scheduler;
 import org.maiminhdung.customenderchest.storage.StorageManager;
+
+import java.util.concurrent.CompletableFuture;
+
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
@@ -23,7 +26,19 @@ public class MigrationManager {
         this.plugin = plugin;
     }
 
-    public void startMigration(CommandSender sender, String sourceType, String targetType) {
+    /**
+     * How /cec migrate treats a saved checkpoint
+     */
+    public enum Mode {
+        // Continue after the last finished chunk if a checkpoint exists
+        RESUME,
+        // Drop the checkpoint and migrate every player again
+        FRESH,
+        // Only compare the source with the target
+        VERIFY
+    }
+
+    public void startMigration(CommandSender sender, String sourceType, String targetType, Mode mode) {
         if (isMigrating) {
             sender.sendMessage(plugin.getLocaleManager().getPrefixedComponent("command.migrate-running"));
             return;
@@ -75,12 +90,18 @@ public class MigrationManager {
                     }
                 };
 
-                migrator.migrate(sender).whenCompleteAsync((res, ex) -> {
+                if (mode == Mode.FRESH) {
+                    MigrationCheckpoint.delete(plugin);
+                }
+                CompletableFuture<Void> task = mode == Mode.VERIFY ? migrator.verify(sender) : migrator.migrate(sender);
+                task.whenCompleteAsync((res, ex) -> {
                     if (ex != null) {
                         plugin.getLogger().severe("Migration error: " + ex.getMessage());
                         Scheduler.runTask(() -> sender.sendMessage(
                                 plugin.getLocaleManager().getPrefixedComponent("command.migrate-error-unknown")));
                     }
+                    // The live storage may have been the target, cached chests could be older now
+                    plugin.getStorageManager().invalidateRecentCache();
                     isMigrating = false;
                     closeManagers(finalSourceManager, finalTargetManager);
                 });
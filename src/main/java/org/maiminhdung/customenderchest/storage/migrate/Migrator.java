@@ -17,6 +17,13 @@ public interface Migrator {
      */
     CompletableFuture<Void> migrate(CommandSender sender);
 
+    /**
+     * Compares the source with the target after a migration.
+     * @param sender The command sender to receive the result.
+     * @return CompletableFuture representing the verification task.
+     */
+    CompletableFuture<Void> verify(CommandSender sender);
+
     /**
      * Gets the name of the source database type.
      */
@@ -1,92 +1,359 @@
 package org.maiminhdung.customenderchest.utils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Supplier;
 
 /**
- * Manages the "locking" of player data operations to prevent
+ * Orders operations on a player's data (load, save, admin edit, migration, delete) to prevent
  * asynchronous conflicts (race conditions).
+ * <p>
+ * Every busy player has a mailbox: a chain of {@link CompletableFuture} stages where each queued
+ * operation starts once the one before it has finished, instead of being dropped. Operations on
+ * different players run in parallel. {@link #isLocked(UUID, String)} tells callers that would
+ * rather skip than wait whether the player is busy.
+ * <p>
+ * Queued operations may start on any thread, tasks that touch Bukkit objects must schedule
+ * themselves. An operation must not wait for another operation queued for the same player.
+ * <p>
+ * Every operation name keeps its own numbers (attempts, waits, refusals, failures, hold times
+ * and what it was blocked by), shown by /cec locks.
  */
 public class DataLockManager {
 
-    private final Set<UUID> lockedPlayers = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    // Operations on several players enqueue under this, so they are in the same order in every mailbox
+    private final Object batchOrder = new Object();
+
+    private final AtomicInteger pendingOperations = new AtomicInteger(0);
+    private final AtomicLong queuedOperations = new AtomicLong(0);
+    private final AtomicLong waitedOperations = new AtomicLong(0);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0);
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+    private final Map<String, OperationStats> operationStats = new ConcurrentHashMap<>();
 
     /**
-     * Attempts to lock a UUID atomically.
-     * @param uuid The UUID to lock.
-     * @return true if the lock was acquired successfully, false if it was already locked.
+     * Operations of one player. Tail completes when the last queued operation has finished.
      */
-    public boolean lock(UUID uuid) {
-        return lockedPlayers.add(uuid);
+    private static final class Mailbox {
+        private CompletableFuture<Void> tail;
+        private int depth;
+        // Operation whose turn it is, set when it starts
+        private volatile String running;
+        private volatile long runningSince = System.nanoTime();
     }
 
     /**
-     * Unlocks a UUID.
-     * @param uuid The UUID to unlock.
+     * Numbers of one operation name. An attempt is one player the operation asked for, a batch
+     * on several players makes one attempt per player.
      */
-    public void unlock(UUID uuid) {
-        lockedPlayers.remove(uuid);
+    public static final class OperationStats {
+        // Upper bounds of the hold time buckets, the last bucket holds everything slower
+        public static final long[] HOLD_BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+        private final AtomicLong attempts = new AtomicLong(0);
+        private final AtomicLong contended = new AtomicLong(0);
+        private final AtomicLong refused = new AtomicLong(0);
+        private final AtomicLong failed = new AtomicLong(0);
+        private final AtomicLong holds = new AtomicLong(0);
+        private final AtomicLong totalHoldNanos = new AtomicLong(0);
+        private final AtomicLong maxHoldNanos = new AtomicLong(0);
+        private final AtomicLongArray holdBuckets = new AtomicLongArray(HOLD_BUCKETS_MS.length + 1);
+        private final Map<String, AtomicLong> blockedBy = new ConcurrentHashMap<>();
+
+        private void recordBlocked(String operation) {
+            blockedBy.computeIfAbsent(operation != null ? operation : "unknown", key -> new AtomicLong())
+                    .incrementAndGet();
+        }
+
+        private void recordHold(long nanos, boolean failure) {
+            if (failure) {
+                failed.incrementAndGet();
+            }
+            holds.incrementAndGet();
+            totalHoldNanos.addAndGet(nanos);
+            maxHoldNanos.accumulateAndGet(nanos, Math::max);
+            long millis = nanos / 1_000_000;
+            int bucket = 0;
+            while (bucket < HOLD_BUCKETS_MS.length && millis >= HOLD_BUCKETS_MS[bucket]) {
+                bucket++;
+            }
+            holdBuckets.incrementAndGet(bucket);
+        }
+
+        public long getAttempts() {
+            return attempts.get();
+        }
+
+        // Attempts that had to wait for another operation
+        public long getContended() {
+            return contended.get();
+        }
+
+        // Attempts that gave up because the player was busy
+        public long getRefused() {
+            return refused.get();
+        }
+
+        // Operations that completed exceptionally or timed out
+        public long getFailed() {
+            return failed.get();
+        }
+
+        public long getHolds() {
+            return holds.get();
+        }
+
+        public double getAvgHoldMs() {
+            long count = holds.get();
+            return count == 0 ? 0.0 : totalHoldNanos.get() / (double) count / 1_000_000.0;
+        }
+
+        public double getMaxHoldMs() {
+            return maxHoldNanos.get() / 1_000_000.0;
+        }
+
+        // Count per bucket of HOLD_BUCKETS_MS, plus one for slower holds
+        public long[] getHoldHistogram() {
+            long[] counts = new long[holdBuckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = holdBuckets.get(i);
+            }
+            return counts;
+        }
+
+        // Operations that were running when this one had to wait or gave up, by name
+        public Map<String, Long> getBlockedBy() {
+            Map<String, Long> copy = new TreeMap<>();
+            blockedBy.forEach((operation, count) -> copy.put(operation, count.get()));
+            return copy;
+        }
     }
 
     /**
-     * Checks if a UUID is currently locked.
-     * Note: Prefer using tryLock() or lockAndRun() to avoid race conditions.
-     * @param uuid The UUID to check.
-     * @return true if the UUID is locked.
+     * A player with an operation running, as seen at one moment.
      */
-    public boolean isLocked(UUID uuid) {
-        return lockedPlayers.contains(uuid);
+    public static final class HeldLock {
+        public final UUID playerUUID;
+        public final String operation;
+        public final long ageMs;
+        public final int queued;
+
+        public HeldLock(UUID playerUUID, String operation, long ageMs, int queued) {
+            this.playerUUID = playerUUID;
+            this.operation = operation;
+            this.ageMs = ageMs;
+            this.queued = queued;
+        }
     }
 
     /**
-     * Atomically attempts to lock a UUID. This is the same as lock()
-     * but with clearer intent for try-lock pattern.
-     * @param uuid The UUID to lock.
-     * @return true if the lock was acquired, false if already locked.
+     * Queue an operation on a player's data. It starts once every operation queued before it
+     * for this player has finished, and the next one waits for the future it returns.
+     *
+     * @param uuid      The player
+     * @param operation Short name of the operation, its numbers are kept under this name
+     * @param task      Starts the operation
+     * @return Completes with the operation's result
      */
-    public boolean tryLock(UUID uuid) {
-        return lock(uuid);
+    public <T> CompletableFuture<T> submit(UUID uuid, String operation, Supplier<CompletableFuture<T>> task) {
+        return queue(uuid, operation, task, stats(operation), true);
+    }
+
+    private <T> CompletableFuture<T> queue(UUID uuid, String operation, Supplier<CompletableFuture<T>> task,
+            OperationStats stats, boolean recordHold) {
+        stats.attempts.incrementAndGet();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        String[] blocker = new String[1];
+        CompletableFuture<Void> previous = enqueue(uuid, result.handle((v, ex) -> null), blocker);
+        OperationStats holdStats = recordHold ? stats : null;
+        if (previous == null) {
+            start(uuid, operation, task, result, 0, holdStats);
+        } else {
+            stats.contended.incrementAndGet();
+            stats.recordBlocked(blocker[0]);
+            previous.whenComplete((v, ex) -> start(uuid, operation, task, result, System.nanoTime() - queuedAt,
+                    holdStats));
+        }
+        return result;
     }
 
     /**
-     * Executes a runnable while holding the lock.
-     * If the lock cannot be acquired, does nothing and returns false.
-     * The lock is always released after the runnable completes.
-     * @param uuid The UUID to lock.
-     * @param runnable The action to execute while holding the lock.
-     * @return true if the lock was acquired and the action was executed.
+     * Queue one operation on several players, e.g. a batch save. It starts once it is the turn
+     * of every player and holds all of them until it finishes.
      */
-    public boolean lockAndRun(UUID uuid, Runnable runnable) {
-        if (!lock(uuid)) {
-            return false;
+    public <T> CompletableFuture<T> submitAll(Collection<UUID> uuids, String operation,
+            Supplier<CompletableFuture<T>> task) {
+        Set<UUID> players = new LinkedHashSet<>(uuids);
+        OperationStats stats = stats(operation);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        List<CompletableFuture<Void>> turns = new ArrayList<>(players.size());
+        synchronized (batchOrder) {
+            for (UUID uuid : players) {
+                CompletableFuture<Void> turn = new CompletableFuture<>();
+                turns.add(turn);
+                queue(uuid, operation, () -> {
+                    turn.complete(null);
+                    return result;
+                }, stats, false);
+            }
+        }
+        CompletableFuture.allOf(turns.toArray(new CompletableFuture[0]))
+                .whenComplete((v, ex) -> start(null, operation, task, result, -1, stats));
+        return result;
+    }
+
+    // Append to the player's mailbox. Returns the stage to wait for, or null if the player was idle.
+    // The operation running at that moment is put into blocker.
+    private CompletableFuture<Void> enqueue(UUID uuid, CompletableFuture<Void> done, String[] blocker) {
+        List<CompletableFuture<Void>> previous = new ArrayList<>(1);
+        mailboxes.compute(uuid, (key, box) -> {
+            if (box == null) {
+                box = new Mailbox();
+            } else {
+                previous.add(box.tail);
+                blocker[0] = box.running;
+            }
+            box.tail = done;
+            box.depth++;
+            return box;
+        });
+        pendingOperations.incrementAndGet();
+        queuedOperations.incrementAndGet();
+        done.whenComplete((v, ex) -> dequeue(uuid, done));
+        return previous.isEmpty() ? null : previous.get(0);
+    }
+
+    private void dequeue(UUID uuid, CompletableFuture<Void> done) {
+        pendingOperations.decrementAndGet();
+        mailboxes.computeIfPresent(uuid, (key, box) -> {
+            box.depth--;
+            // Nothing was queued after this operation, the player is idle again
+            return box.tail == done ? null : box;
+        });
+    }
+
+    private <T> void start(UUID uuid, String operation, Supplier<CompletableFuture<T>> task,
+            CompletableFuture<T> result, long waitNanos, OperationStats holdStats) {
+        if (uuid != null) {
+            // The mailbox stays until this operation is done
+            Mailbox box = mailboxes.get(uuid);
+            if (box != null) {
+                box.runningSince = System.nanoTime();
+                box.running = operation;
+            }
+        }
+        if (waitNanos >= 0) {
+            waitedOperations.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+        if (holdStats != null) {
+            long startedAt = System.nanoTime();
+            result.whenComplete((value, ex) -> holdStats.recordHold(System.nanoTime() - startedAt, ex != null));
         }
         try {
-            runnable.run();
-            return true;
-        } finally {
-            unlock(uuid);
+            task.get().whenComplete((value, ex) -> {
+                if (ex != null) {
+                    result.completeExceptionally(ex);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
         }
     }
 
+    private OperationStats stats(String operation) {
+        return operationStats.computeIfAbsent(operation, key -> new OperationStats());
+    }
+
     /**
-     * Executes a supplier while holding the lock and returns the result.
-     * If the lock cannot be acquired, returns null.
-     * The lock is always released after the supplier completes.
-     * @param <T> The return type.
-     * @param uuid The UUID to lock.
-     * @param supplier The action to execute while holding the lock.
-     * @return The result of the supplier, or null if the lock was not acquired.
+     * Checks if an operation is running or queued for a UUID, for callers that give up when the
+     * player is busy. The check is counted as an attempt of the operation, and as refused when the
+     * player is busy.
+     * @param uuid The UUID to check.
+     * @param operation Short name of the caller.
+     * @return true if the UUID is locked.
      */
-    public <T> T lockAndGet(UUID uuid, Supplier<T> supplier) {
-        if (!lock(uuid)) {
-            return null;
+    public boolean isLocked(UUID uuid, String operation) {
+        OperationStats stats = stats(operation);
+        stats.attempts.incrementAndGet();
+        Mailbox box = mailboxes.get(uuid);
+        if (box == null) {
+            return false;
         }
-        try {
-            return supplier.get();
-        } finally {
-            unlock(uuid);
+        stats.refused.incrementAndGet();
+        stats.recordBlocked(box.running);
+        return true;
+    }
+
+    // Operations running or waiting, over all players
+    public int getPendingOperations() {
+        return pendingOperations.get();
+    }
+
+    public int getBusyPlayers() {
+        return mailboxes.size();
+    }
+
+    // Most operations running or waiting for a single player
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (Mailbox box : mailboxes.values()) {
+            max = Math.max(max, box.depth);
         }
+        return max;
+    }
+
+    public long getQueuedOperations() {
+        return queuedOperations.get();
+    }
+
+    // Time operations waited for their turn
+    public double getAvgWaitMs() {
+        long count = waitedOperations.get();
+        return count == 0 ? 0.0 : totalWaitNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxWaitMs() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    // Numbers of every operation name seen since the start or the last reset, sorted by name
+    public Map<String, OperationStats> getOperationStats() {
+        return new TreeMap<>(operationStats);
+    }
+
+    // Players with an operation running right now, the oldest first
+    public List<HeldLock> getHeldLocks() {
+        long now = System.nanoTime();
+        List<HeldLock> held = new ArrayList<>(mailboxes.size());
+        mailboxes.forEach((uuid, box) -> held.add(new HeldLock(uuid, box.running != null ? box.running : "waiting",
+                (now - box.runningSince) / 1_000_000, box.depth)));
+        held.sort(Comparator.comparingLong((HeldLock lock) -> lock.ageMs).reversed());
+        return held;
+    }
+
+    // Start counting again, e.g. before a busy period. Running operations are not affected.
+    public void resetStats() {
+        operationStats.clear();
+        waitedOperations.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos.set(0);
     }
-}
\ No newline at end of file
+}